@@ -0,0 +1,133 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+import info.estebanluengo.alfrescoAPI.TransportConfig;
+
+/**
+ * Compares the context profiles of executeQuery: the latency of every call and the bytes that the server sends for
+ * it. The repository is served over HTTP by {@link EmbeddedServer} with the Browser binding and the bytes per call are
+ * reported as the secondary result responseBytes. The benchmark runs with one thread so that the bytes of every call
+ * can be measured.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextProfileBenchmark {
+
+    @Param({"full", "listing", "id-only"})
+    public String profile;
+
+    @Param({"10", "100"})
+    public int resultCount;
+
+    private EmbeddedServer server;
+    private Session session;
+    private String query;
+    private ContextProfile context;
+
+    /**
+     * Bytes sent by the server for every call of the iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public double responseBytes;
+        private long calls;
+        private long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset(){
+            responseBytes = 0;
+            calls = 0;
+            bytes = 0;
+        }
+
+        void add(long callBytes){
+            calls++;
+            bytes += callBytes;
+            responseBytes = (double) bytes / calls;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception{
+        server = new EmbeddedServer();
+        TransportConfig transport = TransportConfig.DEFAULT.withBinding(BindingType.BROWSER);
+        session = AlfrescoAPI.createSession(EmbeddedServer.USER, EmbeddedServer.PASSWORD, server.getBrowserUrl(), transport);
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "profiles");
+        byte[] payload = EmbeddedRepository.createPayload(128);
+        for (int i = 0; i < resultCount; i++){
+            AlfrescoAPI.createDocument(session, folder, "doc"+i+".bin", payload, EmbeddedRepository.MIME_TYPE);
+        }
+        query = "SELECT cmis:objectId FROM cmis:document WHERE IN_FOLDER('"+folder.getId()+"')";
+        context = getProfile(profile).withPageSize(resultCount);
+        int rows = AlfrescoAPI.executeQuery(session, query, 0, context).size();
+        if (rows != resultCount){
+            throw new IllegalStateException("The query returns "+rows+" rows instead of "+resultCount);
+        }
+    }
+
+    private static ContextProfile getProfile(String name){
+        for (ContextProfile candidate: new ContextProfile[]{ContextProfile.FULL, ContextProfile.LISTING, ContextProfile.ID_ONLY}){
+            if (candidate.getName().equals(name)){
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown profile:"+name);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception{
+        server.close();
+    }
+
+    @Benchmark
+    public List<CmisObject> executeQuery(Counters counters){
+        long start = server.getResponseBytes();
+        List<CmisObject> objects = AlfrescoAPI.executeQuery(session, query, 0, context);
+        counters.add(server.getResponseBytes() - start);
+        return objects;
+    }
+}
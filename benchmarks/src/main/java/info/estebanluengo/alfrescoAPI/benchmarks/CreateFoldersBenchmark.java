@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+
+/**
+ * Benchmarks createFolders with paths of several depths. Every call creates a new path, so the first folder does
+ * not exist and the whole path is created. The folders of an iteration are deleted when it ends.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateFoldersBenchmark {
+
+    @Param({"1", "3", "6"})
+    public int depth;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Session session;
+    private String subPath;
+    private Folder folder;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        session = EmbeddedRepository.createSession();
+        StringBuilder path = new StringBuilder();
+        for (int i = 1; i < depth; i++){
+            path.append("/level").append(i);
+        }
+        subPath = path.toString();
+    }
+
+    @Setup(Level.Iteration)
+    public void createFolder(){
+        folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "folders"+sequence.incrementAndGet());
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFolder(){
+        AlfrescoAPI.deleteFolder(session, folder, true);
+    }
+
+    @Benchmark
+    public Folder createFolders(){
+        return AlfrescoAPI.createFolders(session, folder, "path"+sequence.incrementAndGet()+subPath);
+    }
+}
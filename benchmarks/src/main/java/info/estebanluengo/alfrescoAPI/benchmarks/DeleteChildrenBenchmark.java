@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.DeleteResult;
+
+/**
+ * Benchmarks deleteChildren over a folder with resultCount documents, with one thread and with several threads.
+ * The documents are created before every iteration, which makes a single call, so the score is the time of one call.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DeleteChildrenBenchmark {
+
+    @Param({"100", "1000"})
+    public int resultCount;
+
+    @Param({"1", "8"})
+    public int concurrency;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Session session;
+    private byte[] payload;
+    private Folder folder;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        session = EmbeddedRepository.createSession();
+        payload = EmbeddedRepository.createPayload(128);
+    }
+
+    @Setup(Level.Iteration)
+    public void createChildren(){
+        folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "delete"+sequence.incrementAndGet());
+        for (int i = 0; i < resultCount; i++){
+            AlfrescoAPI.createDocument(session, folder, "doc"+i+".bin", payload, EmbeddedRepository.MIME_TYPE);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFolder(){
+        AlfrescoAPI.deleteFolder(session, folder, true);
+    }
+
+    @Benchmark
+    public DeleteResult deleteChildren(){
+        DeleteResult result = AlfrescoAPI.deleteChildren(session, folder, true, concurrency, 100, null);
+        if (!result.isSuccessful()){
+            throw new IllegalStateException(result.getFailures().size()+" children can not be deleted");
+        }
+        return result;
+    }
+}
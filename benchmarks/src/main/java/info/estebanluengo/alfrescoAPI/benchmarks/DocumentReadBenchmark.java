@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+
+/**
+ * Benchmarks the calls that read one document: getDocument with the profiles that change the size of the response
+ * and getDocumentContent with several payload sizes.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentReadBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int payloadSize;
+
+    private Session session;
+    private String docId;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        session = EmbeddedRepository.createSession();
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "read");
+        Document doc = AlfrescoAPI.createDocument(session, folder, "doc.bin", EmbeddedRepository.createPayload(payloadSize),
+                EmbeddedRepository.MIME_TYPE);
+        docId = doc.getId();
+    }
+
+    @Benchmark
+    public Document getDocument(){
+        return AlfrescoAPI.getDocument(session, docId, false);
+    }
+
+    @Benchmark
+    public Document getDocumentIdOnly(){
+        return AlfrescoAPI.getDocument(session, docId, ContextProfile.ID_ONLY);
+    }
+
+    @Benchmark
+    public Document getDocumentCached(){
+        return AlfrescoAPI.getDocument(session, docId, true);
+    }
+
+    @Benchmark
+    public byte[] getDocumentContent() throws Exception{
+        return AlfrescoAPI.getDocumentContent(session, docId);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+
+/**
+ * Benchmarks the calls that write documents: createDocument and updateDocument with several payload sizes.
+ * <br>
+ * The in-memory repository keeps the content of every document and every version in the heap, so every iteration
+ * makes a fixed batch of calls in a new folder that is deleted when the iteration ends. The score is the time of
+ * the whole batch.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = DocumentWriteBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = DocumentWriteBenchmark.BATCH_SIZE)
+@Fork(1)
+public class DocumentWriteBenchmark {
+
+    static final int BATCH_SIZE = 100;
+
+    @Param({"1024", "65536", "1048576"})
+    public int payloadSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Session session;
+    private String versionableType;
+    private byte[] payload;
+    private Folder folder;
+    private Document versionedDoc;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        session = EmbeddedRepository.createSession();
+        versionableType = EmbeddedRepository.getVersionableDocumentType(session);
+        payload = EmbeddedRepository.createPayload(payloadSize);
+    }
+
+    @Setup(Level.Iteration)
+    public void createFolder(){
+        folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "write"+sequence.incrementAndGet());
+        versionedDoc = AlfrescoAPI.createDocument(session, folder, "versioned.bin", payload, EmbeddedRepository.MIME_TYPE,
+                versionableType, null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteFolder(){
+        AlfrescoAPI.deleteFolder(session, folder, true);
+    }
+
+    @Benchmark
+    public Document createDocument(){
+        return AlfrescoAPI.createDocument(session, folder, "doc"+sequence.incrementAndGet()+".bin", payload,
+                EmbeddedRepository.MIME_TYPE);
+    }
+
+    @Benchmark
+    public Document updateDocument(){
+        Document updated = AlfrescoAPI.updateDocument(session, versionedDoc, payload, EmbeddedRepository.MIME_TYPE, null,
+                false, null);
+        if (updated == null){
+            throw new IllegalStateException("The document "+versionedDoc.getId()+" can not be checked out");
+        }
+        versionedDoc = updated;
+        return updated;
+    }
+}
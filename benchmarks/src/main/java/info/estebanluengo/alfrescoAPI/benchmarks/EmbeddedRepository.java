@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.chemistry.opencmis.client.api.DocumentType;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.ContentStreamAllowed;
+
+/**
+ * Creates sessions connected to an OpenCMIS in-memory repository that runs inside the benchmark JVM through the
+ * local binding, so the benchmarks measure the client side of the calls without network and without a server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class EmbeddedRepository {
+
+    public static final String REPOSITORY_ID = "A1";
+    public static final String MIME_TYPE = "application/octet-stream";
+
+    /**
+     * Creates a new Session connected to a new in-memory repository. Every Session has its own repository.
+     *
+     * @return a Session object connected to the in-memory repository
+     */
+    public static Session createSession(){
+        Map<String, String> parameter = new HashMap<>();
+        parameter.put(SessionParameter.USER, "bench");
+        parameter.put(SessionParameter.PASSWORD, "bench");
+        parameter.put(SessionParameter.BINDING_TYPE, BindingType.LOCAL.value());
+        parameter.put(SessionParameter.LOCAL_FACTORY, "org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceFactoryImpl");
+        parameter.put(SessionParameter.REPOSITORY_ID, REPOSITORY_ID);
+        //in-memory server configuration, see org.apache.chemistry.opencmis.inmemory.ConfigConstants
+        parameter.put("InMemoryServer.RepositoryId", REPOSITORY_ID);
+        //adds the versionable document types used by the updateDocument benchmark
+        parameter.put("InMemoryServer.TypesCreatorClass", "org.apache.chemistry.opencmis.inmemory.types.DefaultTypeSystemCreator");
+        return SessionFactoryImpl.newInstance().createSession(parameter);
+    }
+
+    /**
+     * Gets a creatable and versionable document type. The documents of cmis:document can not be checked out in the
+     * in-memory repository, so updateDocument needs one of these types.
+     *
+     * @param session a Session object connected to the in-memory repository
+     * @return a String with the type id
+     * @throws IllegalStateException if the repository has no versionable document type
+     */
+    public static String getVersionableDocumentType(Session session){
+        ObjectType type = findVersionable(session.getTypeDescendants(BaseTypeId.CMIS_DOCUMENT.value(), -1, true));
+        if (type == null){
+            throw new IllegalStateException("The in-memory repository has no versionable document type");
+        }
+        return type.getId();
+    }
+
+    private static ObjectType findVersionable(List<Tree<ObjectType>> types){
+        for (Tree<ObjectType> tree : types){
+            ObjectType type = tree.getItem();
+            if (type instanceof DocumentType && Boolean.TRUE.equals(type.isCreatable())
+                    && Boolean.TRUE.equals(((DocumentType) type).isVersionable())
+                    && ((DocumentType) type).getContentStreamAllowed() != ContentStreamAllowed.NOTALLOWED){
+                return type;
+            }
+            ObjectType child = findVersionable(tree.getChildren());
+            if (child != null){
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a payload of random bytes. The seed is fixed so every run sends the same bytes
+     *
+     * @param size a int with the number of bytes
+     * @return a byte[] with the payload
+     */
+    public static byte[] createPayload(int size){
+        byte[] payload = new byte[size];
+        new Random(size).nextBytes(payload);
+        return payload;
+    }
+}
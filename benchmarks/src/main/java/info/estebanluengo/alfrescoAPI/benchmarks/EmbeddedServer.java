@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.net.InetSocketAddress;
+import org.apache.chemistry.opencmis.server.impl.CmisRepositoryContextListener;
+import org.apache.chemistry.opencmis.server.impl.atompub.CmisAtomPubServlet;
+import org.apache.chemistry.opencmis.server.impl.browser.CmisBrowserBindingServlet;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+/**
+ * Serves an OpenCMIS in-memory repository over HTTP on a free port of the loopback interface, so the benchmarks
+ * can measure the HTTP transport without a remote server. The repository is published with the AtomPub and the
+ * Browser bindings and it is configured in repository.properties.
+ * <br>
+ * The responses are compressed with gzip when the client asks for it and the compressed requests are inflated, like
+ * a server behind a proxy that compresses.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class EmbeddedServer implements AutoCloseable {
+
+    public static final String USER = "bench";
+    public static final String PASSWORD = "bench";
+
+    private final Server server;
+    private final StatisticsHandler statistics;
+    private final String baseUrl;
+
+    /**
+     * Starts the server
+     *
+     * @throws Exception if the server can not be started
+     */
+    public EmbeddedServer() throws Exception{
+        server = new Server(new InetSocketAddress("127.0.0.1", 0));
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        context.addEventListener(new CmisRepositoryContextListener());
+        ServletHolder atomPub = new ServletHolder(new CmisAtomPubServlet());
+        atomPub.setInitParameter("callContextHandler", "org.apache.chemistry.opencmis.server.shared.BasicAuthCallContextHandler");
+        atomPub.setInitParameter("cmisVersion", "1.1");
+        context.addServlet(atomPub, "/atom11/*");
+        ServletHolder browser = new ServletHolder(new CmisBrowserBindingServlet());
+        browser.setInitParameter("callContextHandler", "org.apache.chemistry.opencmis.server.shared.BasicAuthCallContextHandler");
+        browser.setInitParameter("cmisVersion", "1.1");
+        context.addServlet(browser, "/browser/*");
+        GzipHandler gzip = new GzipHandler();
+        gzip.setIncludedMethods("GET", "POST", "PUT");
+        gzip.setInflateBufferSize(8192);
+        gzip.setHandler(context);
+        //outside the gzip handler, so it counts the bytes sent through the network
+        statistics = new StatisticsHandler();
+        statistics.setHandler(gzip);
+        server.setHandler(statistics);
+        server.start();
+        baseUrl = "http://127.0.0.1:"+((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    }
+
+    /**
+     * Gets the AtomPub URL of the repository
+     *
+     * @return a String with the URL
+     */
+    public String getAtomPubUrl(){
+        return baseUrl+"/atom11";
+    }
+
+    /**
+     * Gets the Browser binding URL of the repository
+     *
+     * @return a String with the URL
+     */
+    public String getBrowserUrl(){
+        return baseUrl+"/browser";
+    }
+
+    /**
+     * Gets the number of bytes of the responses sent since the server was started
+     *
+     * @return a long with the number of bytes
+     */
+    public long getResponseBytes(){
+        return statistics.getResponsesBytesTotal();
+    }
+
+    /**
+     * Gets the number of requests received since the server was started
+     *
+     * @return a long with the number of requests
+     */
+    public long getRequests(){
+        return statistics.getRequests();
+    }
+
+    @Override
+    public void close() throws Exception{
+        server.stop();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+import info.estebanluengo.alfrescoAPI.QueryItem;
+
+/**
+ * Benchmarks executeQuery and executeQueryItems over a folder with resultCount documents. The query returns all the
+ * documents of the folder, so the result count is the number of rows of every call.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int resultCount;
+
+    private Session session;
+    private String query;
+    private ContextProfile full;
+    private ContextProfile idOnly;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        session = EmbeddedRepository.createSession();
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "query");
+        byte[] payload = EmbeddedRepository.createPayload(128);
+        for (int i = 0; i < resultCount; i++){
+            AlfrescoAPI.createDocument(session, folder, "doc"+i+".bin", payload, EmbeddedRepository.MIME_TYPE);
+        }
+        //the whole result fits in one page, so every call makes one query
+        full = ContextProfile.FULL.withPageSize(resultCount);
+        idOnly = ContextProfile.ID_ONLY.withPageSize(resultCount);
+        query = "SELECT * FROM cmis:document WHERE IN_FOLDER('"+folder.getId()+"')";
+        int rows = AlfrescoAPI.executeQueryItems(session, query, 0, full).size();
+        if (rows != resultCount){
+            throw new IllegalStateException("The query returns "+rows+" rows instead of "+resultCount);
+        }
+    }
+
+    @Benchmark
+    public List<CmisObject> executeQuery(){
+        return AlfrescoAPI.executeQuery(session, query, 0, full);
+    }
+
+    @Benchmark
+    public List<CmisObject> executeQueryIdOnly(){
+        return AlfrescoAPI.executeQuery(session, query, 0, idOnly);
+    }
+
+    @Benchmark
+    public List<QueryItem> executeQueryItems(){
+        return AlfrescoAPI.executeQueryItems(session, query, 0, full);
+    }
+}
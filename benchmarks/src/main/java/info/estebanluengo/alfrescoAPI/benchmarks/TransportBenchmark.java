@@ -0,0 +1,97 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.TransportConfig;
+
+/**
+ * Compares the default HttpInvoker of OpenCMIS with the pooled one of {@link TransportConfig}, with and without
+ * gzip, while 32 threads share one Session. The repository is served over HTTP by {@link EmbeddedServer}.
+ * <br>
+ * The default invoker keeps only http.maxConnections idle connections, so with more threads than that most requests
+ * open a new connection. Run it with -t to change the number of threads.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({"default", "pooled"})
+    public String invoker;
+
+    @Param({"false", "true"})
+    public boolean compression;
+
+    @Param({"1024", "65536"})
+    public int payloadSize;
+
+    private EmbeddedServer server;
+    private Session session;
+    private String docId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception{
+        server = new EmbeddedServer();
+        TransportConfig transport = "pooled".equals(invoker) ? TransportConfig.POOLED.withMaxConnections(32) : TransportConfig.DEFAULT;
+        session = AlfrescoAPI.createSession(EmbeddedServer.USER, EmbeddedServer.PASSWORD, server.getAtomPubUrl(),
+                transport.withCompression(compression, false));
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "transport");
+        Document doc = AlfrescoAPI.createDocument(session, folder, "doc.bin", EmbeddedRepository.createPayload(payloadSize),
+                EmbeddedRepository.MIME_TYPE);
+        docId = doc.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception{
+        server.close();
+    }
+
+    @Benchmark
+    public Document getDocument(){
+        return AlfrescoAPI.getDocument(session, docId, false);
+    }
+
+    @Benchmark
+    public byte[] getDocumentContent() throws Exception{
+        return AlfrescoAPI.getDocumentContent(session, docId);
+    }
+}
@@ -19,11 +19,19 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 
 import org.apache.chemistry.opencmis.client.api.Document;
@@ -40,10 +48,9 @@ import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.Properties;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
-import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
-import org.apache.chemistry.opencmis.commons.enums.BindingType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -73,6 +80,14 @@ public class AlfrescoAPI {
     
     public static String CUSTOM_ASSOCIATION = "R:cmiscustom:assoc"; //is a creatable sub-type of cmis:relationship
     public static String CUSTOM_DOCUMENT_TYPE = "D:cmiscustom:document"; //a subtype of cmis:document
+
+    //path to folder Id cache used by createFolders and getFolderByName. null disables the cache
+    private static volatile FolderCache folderCache = new FolderCache();
+    private static volatile ObjectCache objectCache;
+    private static volatile DiskContentCache contentCache;
+    private static volatile OffHeapContentCache hotContentCache;
+    //concurrent creations of the same folder path share one call to the server
+    private static final SingleFlight<String, ObjectId> folderCreations = new SingleFlight<>();
     
     /**
      * Creates a new Session to allow access to the server. This method uses ATOMPUB binding type.
@@ -85,20 +100,36 @@ public class AlfrescoAPI {
      * @return a Session object that allow access to the Alfresco Server or null if no session has been created
      */
     public static Session createSession(String user, String password, String url) {
-        // default factory implementation
-        logger.debug("createSession called");
-        SessionFactory factory = SessionFactoryImpl.newInstance();
-        Map<String, String> parameter = new HashMap<>();
+        return createSession(user, password, url, TransportConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a new Session to allow access to the server with the binding and the HTTP settings of the transport.
+     *
+     * @param user a String that contains the username
+     * @param password a String that contains the password
+     * @param url an URL to the server. The URL has to be the one of the binding of the transport:
+     * <br>Example: <a href="http://host:port/alfresco/api/-default-/public/cmis/versions/1.1/browser">Browser url style</a>
+     * @param transport a TransportConfig with the binding, invoker, connections, timeouts and compression of the requests.
+     * Use TransportConfig.POOLED when several threads share the Session
+     *
+     * @return a Session object that allow access to the Alfresco Server or null if no session has been created
+     */
+    public static Session createSession(String user, String password, String url, TransportConfig transport) {
+        return Metrics.measure("createSession", () -> {
+            // default factory implementation
+            logger.debug("createSession called with "+transport);
+            SessionFactory factory = SessionFactoryImpl.newInstance();
+            Map<String, String> parameter = new HashMap<>();
 
-        // user credentials
-        parameter.put(SessionParameter.USER, user);
-        parameter.put(SessionParameter.PASSWORD, password);
+            // user credentials
+            parameter.put(SessionParameter.USER, user);
+            parameter.put(SessionParameter.PASSWORD, password);
 
-        // Specify the connection settings
-        parameter.put(SessionParameter.ATOMPUB_URL, url);
-        parameter.put(SessionParameter.BINDING_TYPE, BindingType.ATOMPUB.value());
+            // binding, http invoker, connections, timeouts and compression. The requests are counted for the metrics
+            transport.apply(parameter, url);
 
-        //Another way. This way works with http://host:port/alfresco/cmis/ URL style
+            //Another way. This way works with http://host:port/alfresco/cmis/ URL style
 //        parameter.put(SessionParameter.BINDING_TYPE, BindingType.WEBSERVICES.value());
 //        String BASE_URL = url;
 //        parameter.put(SessionParameter.WEBSERVICES_ACL_SERVICE, BASE_URL + "ACLService?wsdl");
@@ -113,12 +144,59 @@ public class AlfrescoAPI {
 
 //        // set the alfresco object factory. Not for Alfresco 4.2, only for Alfresco 5.x
 //        parameter.put(SessionParameter.OBJECT_FACTORY_CLASS, "org.alfresco.cmis.client.impl.AlfrescoObjectFactoryImpl");        
-        List<Repository> repositories = factory.getRepositories(parameter);
-        logger.debug("getting repositories");
-        // create session
-        Session session = repositories.get(0).createSession();
-        logger.debug("returning a session object");
-        return session;
+            List<Repository> repositories = factory.getRepositories(parameter);
+            logger.debug("getting repositories");
+            // create session
+            Session session = repositories.get(0).createSession();
+            TypeMetadataCache.forSession(session).warmUp();
+            logger.debug("returning a session object");
+            return session;
+        });
+    }
+
+    /**
+     * Returns a Session from the default {@link SessionManager}. The Session is created only the first time that
+     * it is asked for the same user and url, later calls return the same warm Session. The Session returned
+     * can be used by several threads at the same time and with any method of this class.
+     *
+     * @param user a String that contains the username
+     * @param password a String that contains the password
+     * @param url an URL to the server. The URL has to be atompub style
+     *
+     * @return a Session object that allow access to the Alfresco Server
+     */
+    public static Session getManagedSession(String user, String password, String url) {
+        return Metrics.measure("getManagedSession", () -> {
+            logger.debug("getManagedSession called");
+            return SessionManager.getDefault().getSession(user, password, url);
+        });
+    }
+
+    /**
+     * Gets the type definition from the metadata cache of the Session. The definition is asked to the server only
+     * the first time.
+     *
+     * @param session a Session object that is connected with the server
+     * @param typeId a String with the Id of the type. Example: cmis:folder
+     *
+     * @return an ObjectType with the definition of the type
+     */
+    public static ObjectType getTypeDefinition(Session session, String typeId) {
+        return Metrics.measure("getTypeDefinition", () -> {
+            logger.debug("getTypeDefinition called for typeId:"+typeId);
+            return TypeMetadataCache.forSession(session).getTypeDefinition(typeId);
+        });
+    }
+
+    /**
+     * Gets the metadata cache of the Session with the type definitions and query names used by this class
+     *
+     * @param session a Session object that is connected with the server
+     *
+     * @return the TypeMetadataCache of the Session
+     */
+    public static TypeMetadataCache getTypeMetadataCache(Session session) {
+        return TypeMetadataCache.forSession(session);
     }
 
     /**
@@ -133,20 +211,16 @@ public class AlfrescoAPI {
      * @return a Folder object that represent the folder in the Alfresco repository
      */
     public static Folder getFolderByName(Session session, Folder parentFolder, String folderName) {
-        logger.debug("getFolder called for folderName:"+folderName);
-        ObjectType type = session.getTypeDefinition(BaseTypeId.CMIS_FOLDER.value());
-        PropertyDefinition<?> objectIdPropDef = type.getPropertyDefinitions().get(PropertyIds.OBJECT_ID);
-        String objectIdQueryName = objectIdPropDef.getQueryName();
-        String query = "SELECT * FROM cmis:folder WHERE cmis:name='" + folderName + "' and IN_FOLDER('workspace://SpacesStore/"+parentFolder.getId()+"')";
-        ItemIterable<QueryResult> results = session.query(query, false);
-        logger.debug("query executed:"+query);
-        for (QueryResult qResult : results) {
-            String objectId = qResult.getPropertyValueByQueryName(objectIdQueryName);
-            logger.debug("ObjectId recovered from query:"+objectId);
-            return (Folder) session.getObject(session.createObjectId(objectId));
-        }
-        logger.debug("No results recover for query");
-        return null;
+        return Metrics.measure("getFolderByName", () -> {
+            logger.debug("getFolder called for folderName:"+folderName);
+            String cacheKey = FolderCache.pathKey(session, childPath(parentFolder.getPath(), folderName));
+            Folder cachedFolder = getCachedFolder(session, cacheKey);
+            if (cachedFolder != null){
+                return cachedFolder;
+            }
+            String query = "SELECT * FROM cmis:folder WHERE cmis:name='" + folderName + "' and IN_FOLDER('workspace://SpacesStore/"+parentFolder.getId()+"')";
+            return ReadCoalescer.read(session, "getFolderByName", cacheKey, null, () -> queryFolder(session, query, cacheKey));
+        });
     }
     
     /**
@@ -160,17 +234,33 @@ public class AlfrescoAPI {
      * @return a Folder object that represent the folder in the Alfresco repository
      */
     public static Folder getFolderByName(Session session, String folderName) {
-        logger.debug("getFolder called for folderName:"+folderName);
-        ObjectType type = session.getTypeDefinition(BaseTypeId.CMIS_FOLDER.value());
-        PropertyDefinition<?> objectIdPropDef = type.getPropertyDefinitions().get(PropertyIds.OBJECT_ID);
-        String objectIdQueryName = objectIdPropDef.getQueryName();
-        String query = "SELECT * FROM cmis:folder WHERE cmis:name='" + folderName + "'";
+        return Metrics.measure("getFolderByName", () -> {
+            logger.debug("getFolder called for folderName:"+folderName);
+            String cacheKey = FolderCache.nameKey(session, folderName);
+            Folder cachedFolder = getCachedFolder(session, cacheKey);
+            if (cachedFolder != null){
+                return cachedFolder;
+            }
+            String query = "SELECT * FROM cmis:folder WHERE cmis:name='" + folderName + "'";
+            return ReadCoalescer.read(session, "getFolderByName", cacheKey, null, () -> queryFolder(session, query, cacheKey));
+        });
+    }
+
+    /**
+     * Executes a query of folders and returns the first one, which is stored in the folder cache with the key given
+     *
+     * @return a Folder object or null if the query does not return any folder
+     */
+    private static Folder queryFolder(Session session, String query, String cacheKey) {
+        String objectIdQueryName = TypeMetadataCache.forSession(session).getQueryName(BaseTypeId.CMIS_FOLDER.value(), PropertyIds.OBJECT_ID);
         ItemIterable<QueryResult> results = session.query(query, false);
         logger.debug("query executed:"+query);
         for (QueryResult qResult : results) {
             String objectId = qResult.getPropertyValueByQueryName(objectIdQueryName);
             logger.debug("ObjectId recovered from query:"+objectId);
-            return (Folder) session.getObject(session.createObjectId(objectId));
+            Folder folder = (Folder) loadObject(session, objectId, ContextProfile.FULL.withCache(true));
+            cacheFolder(cacheKey, folder.getId(), folder.getPath());
+            return folder;
         }
         logger.debug("No results recover from query");
         return null;
@@ -187,19 +277,38 @@ public class AlfrescoAPI {
      * @throws CmisContentAlreadyExistsException will be thrown if the folder to be created exists in the same parentFolder.
      */
     public static Folder createFolder(Session session, Folder parentFolder, String folderName) throws CmisContentAlreadyExistsException {
-        logger.debug("createFolder called");
+        return Metrics.measure("createFolder", () -> {
+            logger.debug("createFolder called");
+            ObjectId folderObjectId = createFolder(session, (ObjectId) parentFolder, folderName);
+            return (Folder) session.getObject(folderObjectId);
+        });
+    }
+
+    /**
+     * Creates a new folder under the folder with the parentId given and returns its Id without retrieving the folder
+     *
+     * @param session a Session object that is connected with the server
+     * @param parentId an ObjectId of the folder where the new folder will be created
+     * @param folderName a String that contains the name for the new folder
+     * @return an ObjectId with the Id of the new folder
+     * @throws CmisContentAlreadyExistsException will be thrown if the folder to be created exists in the same parent folder.
+     */
+    private static ObjectId createFolder(Session session, ObjectId parentId, String folderName) throws CmisContentAlreadyExistsException {
         Map<String, Object> folderProps = new HashMap<>();
         folderProps.put(PropertyIds.NAME, folderName);
         folderProps.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value());
 
-        ObjectId folderObjectId = session.createFolder(folderProps, parentFolder, null, null, null);
+        ObjectId folderObjectId = session.createFolder(folderProps, parentId, null, null, null);
         logger.debug("Folder created with id:"+folderObjectId);
-        return (Folder) session.getObject(folderObjectId);
+        return folderObjectId;
     }
     
     /**
      * Creates the folders under the parentFolder. The method creates the folders that don't exist in the
      * tree. Maybe if all folders exist under the parentFolder, no folder is created.
+     * <br>
+     * This method can be called by several threads with the same path at the same time. Only one of them creates every
+     * folder and the others receive the folder it has created.
      * 
      * @param session a Session object that is connected with the server
      * @param parentFolder a Folder object where the new folder will be created
@@ -208,20 +317,298 @@ public class AlfrescoAPI {
      * @return a Folder object that represent the last folder under the tree
      */
     public static Folder createFolders(Session session, Folder parentFolder, String foldersPath) {
-        logger.debug("createFolders called");
+        return Metrics.measure("createFolders", () -> {
+            logger.debug("createFolders called");
+            try{
+                return createFolders(session, parentFolder, foldersPath, folderCache);
+            }catch(CmisObjectNotFoundException e){
+                //a cached folder has been removed by another client. Try again asking the server for every folder
+                logger.debug("cached folder not found in the server. Retrying without cache");
+                FolderCache cache = folderCache;
+                if (cache != null){
+                    cache.invalidateTree(parentFolder.getPath());
+                }
+                return createFolders(session, parentFolder, foldersPath, null);
+            }
+        });
+    }
+
+    /**
+     * Creates the folders under the parentFolder using the cache to resolve the folders that exist. Only the Ids of
+     * the intermediate folders are needed, so a folder is retrieved from the server only when it is not in the cache
+     * or when it is the last one of the path.
+     *
+     * @param session a Session object that is connected with the server
+     * @param parentFolder a Folder object where the new folder will be created
+     * @param foldersPath a String that contains the folders path to be created
+     * @param cache a FolderCache object or null if the cache must not be used
+     * @return a Folder object that represent the last folder under the tree
+     */
+    private static Folder createFolders(Session session, Folder parentFolder, String foldersPath, FolderCache cache) {
         Folder folder = parentFolder;
-        String[] folderList = foldersPath.split("/");
-        for (String f : folderList) {
-            logger.debug(folder.getPath() + "/" + f);            
+        ObjectId folderId = parentFolder;
+        String path = parentFolder.getPath();
+        for (String f : foldersPath.split("/")) {
+            if (f.isEmpty()){
+                continue;
+            }
+            path = childPath(path, f);
+            logger.debug(path);
+            String cacheKey = cache == null ? null : FolderCache.pathKey(session, path);
+            String cachedId = cache == null ? null : cache.get(cacheKey);
+            if (cachedId != null){
+                folderId = session.createObjectId(cachedId);
+                folder = null;
+                continue;
+            }
             try{
-                CmisObject objFolder = session.getObjectByPath(folder.getPath() + "/" + f);
-                folder = (Folder)objFolder;
+                folder = (Folder) session.getObjectByPath(path);
+                folderId = folder;
             }catch(CmisObjectNotFoundException e){
-                folder = createFolder(session, folder, f);
-            }            
+                folderId = createFolderOnce(session, folderId, f, path);
+                folder = null;
+            }
+            if (cache != null){
+                cache.put(cacheKey, folderId.getId(), path);
+            }
+        }
+        if (folder == null){
+            folder = (Folder) session.getObject(folderId);
         }
         return folder;
     }
+
+    /**
+     * Creates the folder unless another thread of this JVM is already creating the same path. In that case the
+     * method waits for the other thread and returns the Id of the folder it has created. If the folder has been
+     * created by another client in the meantime, its Id is returned.
+     *
+     * @param session a Session object that is connected with the server
+     * @param parentId an ObjectId of the folder where the new folder will be created
+     * @param folderName a String that contains the name for the new folder
+     * @param path a String with the full path of the new folder
+     * @return an ObjectId with the Id of the folder
+     */
+    private static ObjectId createFolderOnce(final Session session, final ObjectId parentId, final String folderName, final String path) {
+        return folderCreations.execute(FolderCache.pathKey(session, path), new Callable<ObjectId>() {
+            @Override
+            public ObjectId call() {
+                try{
+                    return createFolder(session, parentId, folderName);
+                }catch(CmisContentAlreadyExistsException e){
+                    logger.debug("folder created by another client:"+path);
+                    return session.getObjectByPath(path);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the number of folder creations that have been collapsed into a creation of another thread
+     *
+     * @return a long with the number of shared creations
+     */
+    public static long getSharedFolderCreations() {
+        return folderCreations.getSharedCalls();
+    }
+
+    /**
+     * Gets the folder cache used by createFolders and getFolderByName
+     *
+     * @return a FolderCache object or null if the cache is disabled
+     */
+    public static FolderCache getFolderCache() {
+        return folderCache;
+    }
+
+    /**
+     * Sets the folder cache used by createFolders and getFolderByName
+     *
+     * @param cache a FolderCache object. null disables the cache
+     */
+    public static void setFolderCache(FolderCache cache) {
+        folderCache = cache;
+    }
+
+    /**
+     * Gets the folder of the cache entry. If the folder does not exist any more in the server the entry is removed
+     *
+     * @param session a Session object that is connected with the server
+     * @param cacheKey a String with the cache key
+     * @return a Folder object or null if the key is not in the cache
+     */
+    private static Folder getCachedFolder(Session session, String cacheKey) {
+        FolderCache cache = folderCache;
+        if (cache == null){
+            return null;
+        }
+        String objectId = cache.get(cacheKey);
+        if (objectId == null){
+            return null;
+        }
+        try{
+            logger.debug("folder recovered from cache with id:"+objectId);
+            return (Folder) loadObject(session, objectId, ContextProfile.FULL.withCache(true));
+        }catch(CmisObjectNotFoundException e){
+            cache.invalidateId(objectId);
+            return null;
+        }
+    }
+
+    private static void cacheFolder(String cacheKey, String objectId, String path) {
+        FolderCache cache = folderCache;
+        if (cache != null){
+            cache.put(cacheKey, objectId, path);
+        }
+    }
+
+    static void invalidateFolder(String folderId, String path) {
+        FolderCache cache = folderCache;
+        if (cache != null){
+            cache.invalidateId(folderId);
+            cache.invalidateTree(path);
+        }
+        invalidateObject(folderId);
+    }
+
+    /**
+     * Gets the object cache used by getDocument and getFolderByName
+     *
+     * @return an ObjectCache object or null if the cache is disabled
+     */
+    public static ObjectCache getObjectCache() {
+        return objectCache;
+    }
+
+    /**
+     * Sets the object cache used by getDocument and getFolderByName when the cache of the call is enabled. It is
+     * disabled by default.
+     *
+     * @param cache an ObjectCache object. null disables the cache
+     */
+    public static void setObjectCache(ObjectCache cache) {
+        objectCache = cache;
+    }
+
+    /**
+     * Gets the object from the object cache if it is enabled for the profile, or from the session otherwise
+     */
+    private static CmisObject loadObject(Session session, String objectId, ContextProfile profile) {
+        ObjectCache cache = objectCache;
+        if (cache != null && profile.isCacheEnabled()){
+            return cache.getObject(session, objectId, profile);
+        }
+        return session.getObject(objectId, profile.toOperationContext(session));
+    }
+
+    /**
+     * Gets the Id of the node of an object Id. Alfresco adds the version label to the Id of a document, as in
+     * workspace://SpacesStore/uuid;1.0, and the change log may give the Id without it, so the caches compare the
+     * node Ids when they invalidate an object
+     *
+     * @param objectId a String with the Id of the object
+     * @return the Id without the version label
+     */
+    static String getNodeId(String objectId) {
+        int separator = objectId.indexOf(';');
+        return separator < 0 ? objectId : objectId.substring(0, separator);
+    }
+
+    static void invalidateObject(String objectId) {
+        ObjectCache cache = objectCache;
+        if (cache != null){
+            cache.invalidate(objectId);
+        }
+        DiskContentCache diskCache = contentCache;
+        if (diskCache != null){
+            diskCache.invalidate(objectId);
+        }
+        OffHeapContentCache hotCache = hotContentCache;
+        if (hotCache != null){
+            hotCache.invalidate(objectId);
+        }
+    }
+
+    /**
+     * Gets the content cache used by getDocumentContent
+     *
+     * @return a DiskContentCache object or null if the cache is disabled
+     */
+    public static DiskContentCache getContentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Sets the content cache used by getDocumentContent. It is disabled by default.
+     *
+     * @param cache a DiskContentCache object. null disables the cache
+     */
+    public static void setContentCache(DiskContentCache cache) {
+        contentCache = cache;
+    }
+
+    /**
+     * Gets the off-heap cache of small contents used by getDocumentContent
+     *
+     * @return an OffHeapContentCache object or null if the cache is disabled
+     */
+    public static OffHeapContentCache getHotContentCache() {
+        return hotContentCache;
+    }
+
+    /**
+     * Sets the off-heap cache of small contents used by getDocumentContent before the content cache. It is disabled
+     * by default.
+     *
+     * @param cache an OffHeapContentCache object. null disables the cache
+     */
+    public static void setHotContentCache(OffHeapContentCache cache) {
+        hotContentCache = cache;
+    }
+
+    /**
+     * Gets the content from the off-heap cache or from the content cache, loading it into them if it is not cached
+     *
+     * @return a ContentLease or null if the caches are disabled or the document can not be cached
+     */
+    private static ContentLease getCachedContent(Session session, String docId, String changeToken, long length) throws IOException {
+        OffHeapContentCache hotCache = hotContentCache;
+        DiskContentCache diskCache = contentCache;
+        if (hotCache != null){
+            ContentLease lease = hotCache.getContent(session, docId, changeToken, length, diskCache);
+            if (lease != null){
+                return lease;
+            }
+        }
+        if (diskCache != null){
+            ByteBuffer cached = diskCache.getContent(session, docId, changeToken, length);
+            if (cached != null){
+                return new ContentLease(cached);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Asks the server only for the change token and the length of the document and gets the content from the caches
+     */
+    private static ContentLease getCachedContent(Session session, String docId) throws IOException {
+        if (hotContentCache == null && contentCache == null){
+            return null;
+        }
+        Properties properties = session.getBinding().getObjectService().getProperties(session.getRepositoryInfo().getId(),
+                docId, PropertyIds.CHANGE_TOKEN + "," + PropertyIds.CONTENT_STREAM_LENGTH, null);
+        PropertyData<?> changeToken = properties.getProperties().get(PropertyIds.CHANGE_TOKEN);
+        PropertyData<?> length = properties.getProperties().get(PropertyIds.CONTENT_STREAM_LENGTH);
+        if (changeToken == null || changeToken.getFirstValue() == null || length == null || length.getFirstValue() == null){
+            return null;
+        }
+        return getCachedContent(session, docId, (String) changeToken.getFirstValue(), ((Number) length.getFirstValue()).longValue());
+    }
+
+    private static String childPath(String parentPath, String name) {
+        return parentPath.endsWith("/") ? parentPath + name : parentPath + "/" + name;
+    }
     
     /**
      * Gets the folders that exits in the folder
@@ -233,16 +620,29 @@ public class AlfrescoAPI {
      * @return a List<org.apache.chemistry.opencmis.client.api.Folder> that contain the folder list
      */
     public static List<Folder> getFolders(Session session, Folder parentFolder, boolean cache){
-        OperationContext oc = session.createOperationContext();
-        oc.setCacheEnabled(cache);
-        ItemIterable<CmisObject> children = parentFolder.getChildren(oc);
-        List<Folder> folderList = new ArrayList<>();
-        for (CmisObject obj: children){
-            if (obj instanceof Folder){
-                folderList.add((Folder)obj);
+        return getFolders(session, parentFolder, ContextProfile.FULL.withCache(cache));
+    }
+
+    /**
+     * Gets the folders that exits in the folder retrieving only what the profile asks for
+     *
+     * @param session a Session object that is connected with the server
+     * @param parentFolder a Folder object where we want the children folders
+     * @param profile a ContextProfile with the properties to be retrieved, the page size and the cache flag
+     * @return a List<org.apache.chemistry.opencmis.client.api.Folder> that contain the folder list
+     */
+    public static List<Folder> getFolders(Session session, Folder parentFolder, ContextProfile profile){
+        return Metrics.measure("getFolders", () -> {
+            logger.debug("getFolders called with profile:"+profile.getName());
+            ItemIterable<CmisObject> children = parentFolder.getChildren(profile.toOperationContext(session));
+            List<Folder> folderList = new ArrayList<>();
+            for (CmisObject obj: children){
+                if (obj instanceof Folder){
+                    folderList.add((Folder)obj);
+                }
             }
-        }
-        return folderList;
+            return folderList;
+        });
     }
 
     /**
@@ -259,19 +659,39 @@ public class AlfrescoAPI {
      */
     public static Document createDocument(Session session, Folder folder, String fileName, byte[] content, String mimeType) 
                                             throws CmisContentAlreadyExistsException{
-        logger.debug("createDocument called for document name:"+fileName);
-        Map<String, Object> docProps = new HashMap<>();
-        docProps.put(PropertyIds.NAME, fileName);
-        docProps.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value());
-        docProps.put(PropertyIds.CREATION_DATE, new Date());
+        return createDocument(session, folder, fileName, new ByteArrayInputStream(content), content.length, mimeType);
+    }
+
+    /**
+     * Creates a new Document in the folder with the name and mimeType. The content is read from the InputStream and
+     * sent to the server while it is read, so the document is never loaded in memory. The InputStream is not closed.
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object where the new document will be created
+     * @param fileName a String that contain the file name
+     * @param content an InputStream with the content of the document
+     * @param length a long with the number of bytes of the content or -1 if it is unknown
+     * @param mimeType a String that represent the mime type of the document
+     *
+     * @return a Document object that represent the document that has just been created
+     * @throws CmisContentAlreadyExistsException if the document to be created exists in the same folder
+     */
+    public static Document createDocument(Session session, Folder folder, String fileName, InputStream content, long length, String mimeType)
+                                            throws CmisContentAlreadyExistsException{
+        return Metrics.measure("createDocument", () -> {
+            logger.debug("createDocument called for document name:"+fileName);
+            Map<String, Object> docProps = new HashMap<>();
+            docProps.put(PropertyIds.NAME, fileName);
+            docProps.put(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value());
+            docProps.put(PropertyIds.CREATION_DATE, new Date());
 
-        ByteArrayInputStream in = new ByteArrayInputStream(content);
-        ContentStream contentStream = new ContentStreamImpl(fileName, BigInteger.valueOf(content.length), mimeType, in);
+            ContentStream contentStream = createContentStream(fileName, content, length, mimeType);
 
-        ObjectId documentId = session.createDocument(docProps, session.createObjectId((String) folder.getPropertyValue(PropertyIds.OBJECT_ID)), contentStream, null, null, null, null);
-        logger.debug("Document created with id:"+documentId.getId());
-        Document document = (Document) session.getObject(documentId);
-        return document;
+            ObjectId documentId = session.createDocument(docProps, session.createObjectId((String) folder.getPropertyValue(PropertyIds.OBJECT_ID)), contentStream, null, null, null, null);
+            logger.debug("Document created with id:"+documentId.getId());
+            Document document = (Document) session.getObject(documentId);
+            return document;
+        });
     }
         
     /**
@@ -290,18 +710,92 @@ public class AlfrescoAPI {
      */
     public static Document createDocument(Session session, Folder folder, String fileName, byte[] content, String mimeType,
             String docType, Map<String, Object> docProps) throws CmisContentAlreadyExistsException{
-        logger.debug("createDocument called for document name:"+fileName);
-        if (docProps == null){
-            docProps = new HashMap<>();
-        }
-        docProps.put(PropertyIds.NAME, fileName);
-        docProps.put(PropertyIds.OBJECT_TYPE_ID, docType == null?CUSTOM_DOCUMENT_TYPE:docType);        
-        ByteArrayInputStream in = new ByteArrayInputStream(content);
-        ContentStream contentStream = new ContentStreamImpl(fileName, BigInteger.valueOf(content.length), mimeType, in);
-        ObjectId documentId = session.createDocument(docProps, session.createObjectId((String) folder.getPropertyValue(PropertyIds.OBJECT_ID)), contentStream, VersioningState.MAJOR);
-        logger.debug("Document created with id:"+documentId.getId());
-        Document document = (Document) session.getObject(documentId);
-        return document;
+        return createDocument(session, folder, fileName, new ByteArrayInputStream(content), content.length, mimeType, docType, docProps);
+    }
+
+    /**
+     * Creates a new Document in the folder with the name, mimeType, docType and properties given in the method call. The content
+     * is read from the InputStream and sent to the server while it is read. The InputStream is not closed.
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object where the new document will be created
+     * @param fileName a String that contain the file name
+     * @param content an InputStream with the content of the document
+     * @param length a long with the number of bytes of the content or -1 if it is unknown
+     * @param mimeType a String that represent the mime type of the document
+     * @param docType a String that represent the document type. If it is null then CUSTOM_DOCUMENT_TYPE will be used
+     * @param docProps a Map with the properties to are associated to the document. It may be null
+     *
+     * @return a Document object that represent the document that has just been created
+     * @throws CmisContentAlreadyExistsException if the document to be created exists in the same folder
+     */
+    public static Document createDocument(Session session, Folder folder, String fileName, InputStream content, long length, String mimeType,
+            String docType, Map<String, Object> docProps) throws CmisContentAlreadyExistsException{
+        Map<String, Object> props = docProps == null ? new HashMap<>() : docProps;
+        return Metrics.measure("createDocument", () -> {
+            logger.debug("createDocument called for document name:"+fileName);
+            props.put(PropertyIds.NAME, fileName);
+            props.put(PropertyIds.OBJECT_TYPE_ID, docType == null?CUSTOM_DOCUMENT_TYPE:docType);        
+            ContentStream contentStream = createContentStream(fileName, content, length, mimeType);
+            ObjectId documentId = session.createDocument(props, session.createObjectId((String) folder.getPropertyValue(PropertyIds.OBJECT_ID)), contentStream, VersioningState.MAJOR);
+            logger.debug("Document created with id:"+documentId.getId());
+            Document document = (Document) session.getObject(documentId);
+            return document;
+        });
+    }
+
+    /**
+     * Creates a new Document in the folder with the content of the file. The name of the document is the file name and the
+     * content is streamed from the disk to the server.
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object where the new document will be created
+     * @param file a Path to the file to upload
+     * @param mimeType a String that represent the mime type of the document
+     *
+     * @return a Document object that represent the document that has just been created
+     * @throws CmisContentAlreadyExistsException if the document to be created exists in the same folder
+     * @throws IOException if the file can not be read
+     */
+    public static Document createDocument(Session session, Folder folder, Path file, String mimeType)
+                                            throws CmisContentAlreadyExistsException, IOException{
+        return Metrics.measure("createDocument", () -> {
+            try(InputStream in = Files.newInputStream(file)){
+                return createDocument(session, folder, file.getFileName().toString(), in, Files.size(file), mimeType);
+            }
+        });
+    }
+
+    /**
+     * Creates a new Document in the folder with the content of the file, the docType and properties given in the method call.
+     * The name of the document is the file name and the content is streamed from the disk to the server.
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object where the new document will be created
+     * @param file a Path to the file to upload
+     * @param mimeType a String that represent the mime type of the document
+     * @param docType a String that represent the document type. If it is null then CUSTOM_DOCUMENT_TYPE will be used
+     * @param docProps a Map with the properties to are associated to the document. It may be null
+     *
+     * @return a Document object that represent the document that has just been created
+     * @throws CmisContentAlreadyExistsException if the document to be created exists in the same folder
+     * @throws IOException if the file can not be read
+     */
+    public static Document createDocument(Session session, Folder folder, Path file, String mimeType,
+            String docType, Map<String, Object> docProps) throws CmisContentAlreadyExistsException, IOException{
+        return Metrics.measure("createDocument", () -> {
+            try(InputStream in = Files.newInputStream(file)){
+                return createDocument(session, folder, file.getFileName().toString(), in, Files.size(file), mimeType, docType, docProps);
+            }
+        });
+    }
+
+    /**
+     * Wraps the InputStream in a ContentStream. A negative length means that the length is unknown.
+     */
+    private static ContentStream createContentStream(String fileName, InputStream content, long length, String mimeType) {
+        BigInteger streamLength = length < 0 ? null : BigInteger.valueOf(length);
+        return new ContentStreamImpl(fileName, streamLength, mimeType, content);
     }
     
     /**
@@ -314,15 +808,17 @@ public class AlfrescoAPI {
      * @param associationName a String that represent the association name. If it is null then the method uses R:cmiscustom:assoc
      */
     public static void relatedDocuments(Session session, Document sourceDoc, Document targetDoc, String associationName) {
-        logger.debug("relatedDocument called");
-        String sourceId = sourceDoc.getId();
-        String targetId = targetDoc.getId();
-        Map<String, String> properties = new HashMap<>();
-        properties.put(PropertyIds.OBJECT_TYPE_ID, associationName == null?CUSTOM_ASSOCIATION:associationName);
-        properties.put(PropertyIds.SOURCE_ID, sourceId);
-        properties.put(PropertyIds.TARGET_ID, targetId);
-        session.createRelationship(properties);
-        logger.debug("relationShip created between the two documents");
+        Metrics.run("relatedDocuments", () -> {
+            logger.debug("relatedDocument called");
+            String sourceId = sourceDoc.getId();
+            String targetId = targetDoc.getId();
+            Map<String, String> properties = new HashMap<>();
+            properties.put(PropertyIds.OBJECT_TYPE_ID, associationName == null?CUSTOM_ASSOCIATION:associationName);
+            properties.put(PropertyIds.SOURCE_ID, sourceId);
+            properties.put(PropertyIds.TARGET_ID, targetId);
+            session.createRelationship(properties);
+            logger.debug("relationShip created between the two documents");
+        });
     }
     
     /**
@@ -345,26 +841,49 @@ public class AlfrescoAPI {
      */
     public static Document updateDocument(Session session, Document doc, byte[] newContent, String mimeType, 
             Map<String, Object> docProps, boolean majorVersion, String checkinComment){
-        logger.debug("updateDocument called for docId:"+doc.getId()+" length:"+newContent.length);
-        Document updatedDocument = null;
-        if (doc.getAllowableActions().getAllowableActions().contains(org.apache.chemistry.opencmis.commons.enums.Action.CAN_CHECK_OUT)) {            
-            doc.refresh();    
-            //make a checkout is mandatory for some repositories. 
-            ObjectId checkedOutDocument = doc.checkOut();
-            Document pwc = (Document) session.getObject(checkedOutDocument);
-            ByteArrayInputStream in = new ByteArrayInputStream(newContent);            
-            ObjectId objectId;
-            try{
-                ContentStream contentStream = new ContentStreamImpl(doc.getName(), BigInteger.valueOf(newContent.length), mimeType, in);
-                objectId = pwc.checkIn(majorVersion, docProps, contentStream, checkinComment);
-            }catch(CmisStorageException e){
-                logger.error("Error trying to make a checkIn", e);
-                pwc.delete();
-                return null;
+        return updateDocument(session, doc, new ByteArrayInputStream(newContent), newContent.length, mimeType, docProps, majorVersion, checkinComment);
+    }
+
+    /**
+     * Updates the document that exits in the server and creates a new version with the content read from the InputStream.
+     * The content is sent to the server while it is read. The InputStream is not closed.<br>
+     * Look at {@link #updateDocument(Session, Document, byte[], String, Map, boolean, String)} for the known issues.
+     *
+     * @param session a Session object that is connected with the server
+     * @param doc a Document object to be updated.
+     * @param newContent an InputStream with the content of the document. It can not be null.
+     * @param length a long with the number of bytes of the content or -1 if it is unknown
+     * @param mimeType a String that represent the mime type of the document
+     * @param docProps a Map object with the properties of the document. It can be null
+     * @param majorVersion a boolean. true indicates that we want a major version and false a minor version.
+     * @param checkinComment a String with the comments that are associated to the new version
+     *
+     * @return a Document that contains the new version created or null if it was not possible to make a new version.
+     */
+    public static Document updateDocument(Session session, Document doc, InputStream newContent, long length, String mimeType,
+            Map<String, Object> docProps, boolean majorVersion, String checkinComment){
+        return Metrics.measure("updateDocument", () -> {
+            logger.debug("updateDocument called for docId:"+doc.getId()+" length:"+length);
+            Document updatedDocument = null;
+            if (doc.getAllowableActions().getAllowableActions().contains(org.apache.chemistry.opencmis.commons.enums.Action.CAN_CHECK_OUT)) {            
+                doc.refresh();    
+                //make a checkout is mandatory for some repositories. 
+                ObjectId checkedOutDocument = doc.checkOut();
+                Document pwc = (Document) session.getObject(checkedOutDocument);
+                ObjectId objectId;
+                try{
+                    ContentStream contentStream = createContentStream(doc.getName(), newContent, length, mimeType);
+                    objectId = pwc.checkIn(majorVersion, docProps, contentStream, checkinComment);
+                }catch(CmisStorageException e){
+                    logger.error("Error trying to make a checkIn", e);
+                    pwc.delete();
+                    return null;
+                }
+                updatedDocument = (Document) session.getObject(objectId);            
+                invalidateObject(doc.getId());
             }
-            updatedDocument = (Document) session.getObject(objectId);            
-        }
-        return updatedDocument;
+            return updatedDocument;
+        });
     }
     
     /**
@@ -376,11 +895,14 @@ public class AlfrescoAPI {
      * @return a Document object with the new properties. This object is retrieved from the server and not from the cache
      */
     public static Document updateDocumentProperties(Session session, Document doc, Map<String, Object> updateProperties){
-        logger.debug("updateDocumentProperties called");
-        ObjectId docReturned = doc.updateProperties(updateProperties, true);
-        logger.debug("Document updated with id:"+doc.getId());
-        Document document = (Document) session.getObject(docReturned);
-        return document;
+        return Metrics.measure("updateDocumentProperties", () -> {
+            logger.debug("updateDocumentProperties called");
+            ObjectId docReturned = doc.updateProperties(updateProperties, true);
+            logger.debug("Document updated with id:"+doc.getId());
+            invalidateObject(doc.getId());
+            Document document = (Document) session.getObject(docReturned);
+            return document;
+        });
     }
 
     /**
@@ -392,9 +914,12 @@ public class AlfrescoAPI {
      * indicates that only the version of the document will be deleted
      */
     public static void deleteDocument(Session session, String docId, boolean allVersions){
-        logger.debug("deleteDocument called");
-        String repositoryId = session.getRepositoryInfo().getId();
-        session.getBinding().getObjectService().deleteObject(repositoryId, docId, allVersions, null);        
+        Metrics.run("deleteDocument", () -> {
+            logger.debug("deleteDocument called");
+            String repositoryId = session.getRepositoryInfo().getId();
+            session.getBinding().getObjectService().deleteObject(repositoryId, docId, allVersions, null);        
+            invalidateObject(docId);
+        });
     }
         
     /**
@@ -405,13 +930,16 @@ public class AlfrescoAPI {
      * @param version a String that represent the version of the document to be deleted
      */
     public static void deleteDocumentByVersion(Session session, String docId, String version){       
-        logger.debug("deleteDocumentByVersion called for docId:"+docId);
-        List<Document> versions = getAllVersionsOfDocument(session, docId);
-        for (Document doc: versions){
-            if (version.equals(doc.getVersionLabel())){
-                doc.delete(false);
+        Metrics.run("deleteDocumentByVersion", () -> {
+            logger.debug("deleteDocumentByVersion called for docId:"+docId);
+            List<Document> versions = getAllVersionsOfDocument(session, docId);
+            for (Document doc: versions){
+                if (version.equals(doc.getVersionLabel())){
+                    doc.delete(false);
+                    invalidateObject(doc.getId());
+                }
             }
-        }
+        });
     }
     
     /**
@@ -422,8 +950,14 @@ public class AlfrescoAPI {
      * @throws CmisConstraintException If the folder to be deleted contains other folders 
      */
     public static void deleteFolder(Session session, String folderId) throws CmisConstraintException{
-        logger.debug("deleteFolder called");
-        session.delete(session.createObjectId(folderId), true);
+        Metrics.run("deleteFolder", () -> {
+            logger.debug("deleteFolder called");
+            try{
+                session.delete(session.createObjectId(folderId), true);
+            }finally{
+                invalidateFolder(folderId, null);
+            }
+        });
     }
     
     /**
@@ -434,8 +968,14 @@ public class AlfrescoAPI {
      * @throws CmisConstraintException If the folder to be deleted contains other folders
      */
     public static void deleteFolder(Session session, Folder folder) throws CmisConstraintException{
-        logger.debug("deleteFolder called");
-        session.delete(folder, true);
+        Metrics.run("deleteFolder", () -> {
+            logger.debug("deleteFolder called");
+            try{
+                session.delete(folder, true);
+            }finally{
+                invalidateFolder(folder.getId(), folder.getPath());
+            }
+        });
     }
     
     /**
@@ -447,17 +987,23 @@ public class AlfrescoAPI {
      * False indicates that only this version of the folder will be deleted
      */
     public static void deleteFolder(Session session, Folder folder, boolean allVersions){
-        logger.debug("deleteFolder called");
-        /**
-         * Note that with the continueOnFailure parameter set to true, folders and documents are deleted individually. If a document or folder 
-         * cannot be deleted, the method moves to the next document or folder in the list. When the method completes, it returns a list of the document 
-         * IDs and folder IDs that were not deleted.
-         * With the continueOnFailure parameter set to false, all of the folders and documents can be deleted in a single batch, which, depending on 
-         * the repository design, may improve performance. If a document or folder cannot be deleted, an exception is raised. Some repository implementations 
-         * will attempt the delete transactionally, so if it fails, no objects are deleted. In other repositories a failed delete may have deleted some, 
-         * but not all, objects in the tree.
-         */
-        folder.deleteTree(allVersions, UnfileObject.DELETE, true);
+        Metrics.run("deleteFolder", () -> {
+            logger.debug("deleteFolder called");
+            /**
+             * Note that with the continueOnFailure parameter set to true, folders and documents are deleted individually. If a document or folder 
+             * cannot be deleted, the method moves to the next document or folder in the list. When the method completes, it returns a list of the document 
+             * IDs and folder IDs that were not deleted.
+             * With the continueOnFailure parameter set to false, all of the folders and documents can be deleted in a single batch, which, depending on 
+             * the repository design, may improve performance. If a document or folder cannot be deleted, an exception is raised. Some repository implementations 
+             * will attempt the delete transactionally, so if it fails, no objects are deleted. In other repositories a failed delete may have deleted some, 
+             * but not all, objects in the tree.
+             */
+            try{
+                folder.deleteTree(allVersions, UnfileObject.DELETE, true);
+            }finally{
+                invalidateFolder(folder.getId(), folder.getPath());
+            }
+        });
     }
         
     /**
@@ -469,15 +1015,41 @@ public class AlfrescoAPI {
      * False indicates that only this version of the folder will be deleted
      */
     public static void deleteChildren(Session session, Folder folder, boolean allVersions){
-        logger.debug("deleteChildren called");
-        ItemIterable<CmisObject> children = folder.getChildren();
-        for (CmisObject obj: children){
-            if (obj instanceof Folder){
-                AlfrescoAPI.deleteFolder(session, (Folder)obj, allVersions);
-            }else if (obj instanceof Document){
-                AlfrescoAPI.deleteDocument(session, ((Document)obj).getId(), allVersions);
+        Metrics.run("deleteChildren", () -> {
+            logger.debug("deleteChildren called");
+            ItemIterable<CmisObject> children = folder.getChildren();
+            for (CmisObject obj: children){
+                if (obj instanceof Folder){
+                    AlfrescoAPI.deleteFolder(session, (Folder)obj, allVersions);
+                }else if (obj instanceof Document){
+                    AlfrescoAPI.deleteDocument(session, ((Document)obj).getId(), allVersions);
+                }
             }
-        }
+        });
+    }
+
+    /**
+     * Deletes all subfolders and documents from the folder using several threads. The children are listed first and then
+     * deleted by concurrency threads. If a child can not be deleted the failure is recorded in the result and the rest of
+     * children are deleted anyway.
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object where we want to delete all children
+     * @param allVersions a boolean. True value indicates that all versions of the children will be deleted.
+     * False indicates that only this version of the children will be deleted
+     * @param concurrency a int with the number of threads that delete the children
+     * @param pageSize a int with the number of children retrieved in every call to the server while listing the folder
+     * @param listener a DeleteProgressListener that receives the progress and the throughput. It may be null
+     * @return a DeleteResult with the Ids deleted and the Ids that could not be deleted with their exceptions
+     */
+    public static DeleteResult deleteChildren(Session session, Folder folder, boolean allVersions, int concurrency, int pageSize,
+            DeleteProgressListener listener){
+        return Metrics.measure("deleteChildren", () -> {
+            logger.debug("deleteChildren called with concurrency:"+concurrency);
+            DeleteResult result = ParallelDelete.deleteChildren(session, folder, allVersions, concurrency, pageSize, listener);
+            logger.debug("deleteChildren finished:"+result);
+            return result;
+        });
     }
     
     /**
@@ -503,12 +1075,27 @@ public class AlfrescoAPI {
      * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
      */
     public static Document getDocument(Session session, String docId, boolean cache) throws CmisObjectNotFoundException{
-        logger.debug("getDocument called for id:"+docId);
-        OperationContext oc = session.createOperationContext();
-        oc.setCacheEnabled(cache);
-        CmisObject object = session.getObject(docId, oc);
-        logger.debug("document recovered");
-        return (Document) object;
+        return getDocument(session, docId, ContextProfile.FULL.withCache(cache));
+    }
+
+    /**
+     * Gets the document from the server or from the cache retrieving only what the profile asks for. The properties
+     * that are not in the filter of the profile are null in the Document returned.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param profile a ContextProfile with the properties to be retrieved and the cache flag
+     * @return a Document object with the document
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static Document getDocument(Session session, String docId, ContextProfile profile) throws CmisObjectNotFoundException{
+        return Metrics.measure("getDocument", () -> {
+            logger.debug("getDocument called for id:"+docId+" with profile:"+profile.getName());
+            CmisObject object = ReadCoalescer.read(session, "getDocument", docId, profile,
+                    () -> loadObject(session, docId, profile));
+            logger.debug("document recovered");
+            return (Document) object;
+        });
     }
     
     /**
@@ -535,15 +1122,17 @@ public class AlfrescoAPI {
      * @return a Document object with the document
      */
     public static Document getDocumentByVersion(Session session, String docId, String version, boolean cache) {
-        logger.debug("getDocumentByVersion called for id:"+docId+" and version:"+version);
-        List<Document> versions = getAllVersionsOfDocument(session, docId, cache);
-        for (Document doc: versions){
-            if (version.equals(doc.getVersionLabel())){
-                logger.debug("Document recovered");
-                return doc;
+        return Metrics.measure("getDocumentByVersion", () -> {
+            logger.debug("getDocumentByVersion called for id:"+docId+" and version:"+version);
+            List<Document> versions = getAllVersionsOfDocument(session, docId, cache);
+            for (Document doc: versions){
+                if (version.equals(doc.getVersionLabel())){
+                    logger.debug("Document recovered");
+                    return doc;
+                }
             }
-        }
-        return null;
+            return null;
+        });
     }
         
     /**
@@ -556,21 +1145,183 @@ public class AlfrescoAPI {
      * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server 
      */
     public static byte[] getDocumentContent(Session session, String docId) throws CmisObjectNotFoundException, IOException {
-        logger.debug("getDocumentContent called");
-        Document doc = getDocument(session, docId);
-        if (doc.getContentStreamLength() == 0){
-            return null;
-        }
-        ContentStream contentStream = doc.getContentStream();
-        try(InputStream inputStream = contentStream.getStream()){            
-            byte[] content = IOUtils.toByteArray(inputStream);
-            logger.debug("Content recovered");
-            return content;
-        }catch(IOException e){
-            throw e;
-        }        
+        return Metrics.measure("getDocumentContent", () -> {
+            logger.debug("getDocumentContent called");
+            Document doc = getDocument(session, docId);
+            if (doc.getContentStreamLength() == 0){
+                return null;
+            }
+            try(ContentLease cached = getCachedContent(session, docId, doc.getChangeToken(), doc.getContentStreamLength())){
+                if (cached != null){
+                    byte[] content = new byte[cached.getLength()];
+                    cached.getBuffer().get(content);
+                    return content;
+                }
+            }
+            ContentStream contentStream = doc.getContentStream();
+            try(InputStream inputStream = contentStream.getStream()){            
+                byte[] content = IOUtils.toByteArray(inputStream);
+                logger.debug("Content recovered");
+                return content;
+            }catch(IOException e){
+                throw e;
+            }        
+        });
+    }
+
+    /**
+     * Writes the content of the document into the channel. The content is asked to the server directly by the document
+     * Id, without retrieving the document first, and it is copied through a reusable direct buffer so the document is
+     * never loaded in memory. The channel is not closed.
+     * <br>
+     * If the off-heap cache or the content cache are enabled the change token of the document is asked to the server
+     * and the content is written from the caches when it has not changed.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param target a WritableByteChannel where the content is written
+     * @return a long with the number of bytes written. 0 if the document has no content
+     * @throws java.io.IOException if the content cannot be read from the server or written into the channel
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static long getDocumentContent(Session session, String docId, WritableByteChannel target) throws CmisObjectNotFoundException, IOException {
+        return Metrics.measure("getDocumentContent", () -> {
+            logger.debug("getDocumentContent called for docId:"+docId);
+            try(ContentLease cached = getCachedContent(session, docId)){
+                if (cached != null){
+                    ByteBuffer buffer = cached.getBuffer();
+                    while (buffer.hasRemaining()){
+                        target.write(buffer);
+                    }
+                    logger.debug("Content recovered from the cache. length:"+cached.getLength());
+                    return (long) cached.getLength();
+                }
+            }
+            ContentStream contentStream = ContentTransfer.openContentStream(session, docId, null, null);
+            if (contentStream == null || contentStream.getStream() == null){
+                return 0L;
+            }
+            try(InputStream inputStream = contentStream.getStream()){
+                long length = ContentTransfer.copy(inputStream, target);
+                logger.debug("Content recovered. length:"+length);
+                return length;
+            }
+        });
+    }
+
+    /**
+     * Gets the content of the document as a read only buffer. If the off-heap cache is enabled and the document is
+     * small enough, the buffer is a view of the memory of the cache and the content is never copied into the heap.
+     * Otherwise the content comes from the content cache or it is read from the server into the heap. Close the
+     * lease when the buffer is not needed.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @return a ContentLease with the content. Its buffer is empty if the document has no content
+     * @throws java.io.IOException if the content cannot be read from the server
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static ContentLease getDocumentContentLease(Session session, String docId) throws CmisObjectNotFoundException, IOException {
+        return Metrics.measure("getDocumentContentLease", () -> {
+            logger.debug("getDocumentContentLease called for docId:"+docId);
+            ContentLease cached = getCachedContent(session, docId);
+            if (cached != null){
+                return cached;
+            }
+            ContentStream contentStream = ContentTransfer.openContentStream(session, docId, null, null);
+            if (contentStream == null || contentStream.getStream() == null){
+                return new ContentLease(ByteBuffer.allocate(0));
+            }
+            try(InputStream inputStream = contentStream.getStream()){
+                return new ContentLease(ByteBuffer.wrap(IOUtils.toByteArray(inputStream)));
+            }
+        });
+    }
+
+    /**
+     * Writes the content of the document into the file. If the file exists it is overwritten. Look at
+     * {@link #getDocumentContent(Session, String, WritableByteChannel)} for the details.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param file a Path to the file where the content is written
+     * @return a long with the number of bytes written. 0 if the document has no content
+     * @throws java.io.IOException if the content cannot be read from the server or written into the file
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static long getDocumentContent(Session session, String docId, Path file) throws CmisObjectNotFoundException, IOException {
+        return Metrics.measure("getDocumentContent", () -> {
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+                return getDocumentContent(session, docId, channel);
+            }
+        });
     }
     
+    /**
+     * Writes the content of the document into the file downloading several byte ranges at the same time. It is useful for
+     * large documents, where a single connection is not able to use all the bandwidth. The file is created with the size of
+     * the document and every range is written at its position, so the file has exactly the same bytes as a sequential download.
+     * If any range fails, or its length is not the expected one, the file is deleted and the exception is thrown.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param file a Path to the file where the content is written. If it exists it is overwritten
+     * @param segments a int with the max number of ranges. Small documents are split in fewer ranges
+     * @param executor an ExecutorService that downloads the ranges. Its size bounds the number of concurrent connections.
+     * If it is null a new pool with a thread per range is used
+     * @return a long with the number of bytes written
+     * @throws java.io.IOException if the content cannot be read from the server or written into the file
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static long getDocumentContent(Session session, String docId, Path file, int segments, ExecutorService executor)
+            throws CmisObjectNotFoundException, IOException {
+        return Metrics.measure("getDocumentContent", () -> {
+            logger.debug("getDocumentContent called for docId:"+docId+" segments:"+segments);
+            return SegmentedDownload.download(session, docId, file, segments, executor);
+        });
+    }
+
+    /**
+     * Gets a range of the content of the document. Only the bytes of the range are sent by the server, so it is the
+     * cheapest way to read the header or the first page of a large document.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param offset a long with the position of the first byte of the range
+     * @param length a int with the number of bytes of the range
+     * @return a ByteBuffer ready to be read with the bytes of the range. It has less than length bytes if the document
+     * ends before the end of the range
+     * @throws java.io.IOException if the content cannot be read from the server
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static ByteBuffer getDocumentContentRange(Session session, String docId, long offset, int length) throws CmisObjectNotFoundException, IOException {
+        return Metrics.measure("getDocumentContentRange", () -> {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            getDocumentContentRange(session, docId, offset, buffer);
+            buffer.flip();
+            return buffer;
+        });
+    }
+
+    /**
+     * Reads a range of the content of the document into the buffer given. The range starts at offset and its length is the
+     * number of bytes remaining in the buffer. The bytes are written from the position of the buffer, which is advanced.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param offset a long with the position of the first byte of the range
+     * @param target a ByteBuffer where the bytes are written
+     * @return a int with the number of bytes read
+     * @throws java.io.IOException if the content cannot be read from the server
+     * @throws CmisObjectNotFoundException will be thrown if the document does not exist in the server
+     */
+    public static int getDocumentContentRange(Session session, String docId, long offset, ByteBuffer target) throws CmisObjectNotFoundException, IOException {
+        return Metrics.measure("getDocumentContentRange", () -> {
+            logger.debug("getDocumentContentRange called for docId:"+docId+" offset:"+offset+" length:"+target.remaining());
+            return ContentTransfer.readRange(session, docId, offset, target);
+        });
+    }
+
     /**
      * Gets the document and all its relationships from the server or from the cache. 
      * 
@@ -582,13 +1333,30 @@ public class AlfrescoAPI {
      * @throws CmisObjectNotFoundException if the document does not exist in the server
      */
     public static Document getDocumentWithRelationShips(Session session, String docId, boolean cache) throws CmisObjectNotFoundException{
-        logger.debug("getDocumentWithRelationShips called for id:"+docId);
-        OperationContext oc = session.createOperationContext();
-        oc.setCacheEnabled(cache);
-        oc.setIncludeRelationships(IncludeRelationships.SOURCE);
-        Object object = session.getObject(session.createObjectId(docId), oc);
-        logger.debug("document recovered");
-        return (Document)object;
+        return getDocumentWithRelationShips(session, docId, ContextProfile.WITH_RELATIONSHIPS.withCache(cache));
+    }
+
+    /**
+     * Gets the document with its relationships retrieving the properties that the profile asks for. The relationships
+     * are included even if the profile does not include them.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param profile a ContextProfile with the properties to be retrieved and the cache flag
+     * @return a Document object with the document
+     * @throws CmisObjectNotFoundException if the document does not exist in the server
+     */
+    public static Document getDocumentWithRelationShips(Session session, String docId, ContextProfile profile) throws CmisObjectNotFoundException{
+        return Metrics.measure("getDocumentWithRelationShips", () -> {
+            logger.debug("getDocumentWithRelationShips called for id:"+docId+" with profile:"+profile.getName());
+            OperationContext oc = profile.toOperationContext(session);
+            if (oc.getIncludeRelationships() == null || oc.getIncludeRelationships() == IncludeRelationships.NONE){
+                oc.setIncludeRelationships(IncludeRelationships.SOURCE);
+            }
+            Object object = session.getObject(session.createObjectId(docId), oc);
+            logger.debug("document recovered");
+            return (Document)object;
+        });
     }
     
     /**
@@ -614,9 +1382,30 @@ public class AlfrescoAPI {
      * @throws CmisObjectNotFoundException if the document does not exist in the server
      */
     public static List<Document> getAllVersionsOfDocument(Session session, String docId, boolean cache) throws CmisObjectNotFoundException {
-        logger.debug("getAllVersionsOfDocument called for docId:"+docId);    
-        Document document = getDocument(session, docId, cache);                
-        return document.getAllVersions();        
+        return Metrics.measure("getAllVersionsOfDocument", () -> {
+            logger.debug("getAllVersionsOfDocument called for docId:"+docId);    
+            Document document = getDocument(session, docId, cache);                
+            return document.getAllVersions();        
+        });
+    }
+
+    /**
+     * Gets all versions of the document retrieving only what the profile asks for
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param profile a ContextProfile with the properties to be retrieved and the cache flag. Include cmis:versionLabel
+     * in the filter if you need the version of every document
+     * @return a List<org.apache.chemistry.opencmis.client.api.Document> with all versions of the document
+     * @throws CmisObjectNotFoundException if the document does not exist in the server
+     */
+    public static List<Document> getAllVersionsOfDocument(Session session, String docId, ContextProfile profile) throws CmisObjectNotFoundException {
+        return Metrics.measure("getAllVersionsOfDocument", () -> {
+            logger.debug("getAllVersionsOfDocument called for docId:"+docId+" with profile:"+profile.getName());
+            OperationContext oc = profile.toOperationContext(session);
+            Document document = (Document) session.getObject(docId, oc);
+            return document.getAllVersions(oc);
+        });
     }
 
     /**
@@ -632,32 +1421,141 @@ public class AlfrescoAPI {
      * of CmisObject to be returned
      */
     public static List<CmisObject> executeQuery(Session session, String query, int maxNumItems, boolean cache) {
-        logger.debug("getQueryResults called for query:"+query);    
-        List<CmisObject> objList = new ArrayList<>();    	
-        OperationContext context = session.createOperationContext();
-        context.setCacheEnabled(cache);
-    	// execute query
-    	ItemIterable<QueryResult> results = session.query(query, false, context);
-        logger.debug("items:"+results.getPageNumItems());
-        if (maxNumItems == 0){
-            results = results.getPage();
-        }else{                
-            results = results.getPage(maxNumItems);
+        return executeQuery(session, query, maxNumItems, ContextProfile.FULL.withCache(cache));
+    }
+
+    /**
+     * Executes a query in the server or in the cache to retrive a list of CmisObjects. Every object is retrieved
+     * with the properties that the profile asks for.
+     *
+     * @param session a Session object that is connected with the server
+     * @param query a String that contains the query to be executed
+     * @param maxNumItems a int that represent the max number of items to be retrieved. If this value is equal to 0 then there
+     * is no limitation.
+     * @param profile a ContextProfile with the properties of the objects to be retrieved, the page size and the cache flag
+     * @return a List<org.apache.chemistry.opencmis.client.api.CmisObject> that contains the list
+     * of CmisObject to be returned
+     */
+    public static List<CmisObject> executeQuery(Session session, String query, int maxNumItems, ContextProfile profile) {
+        return Metrics.measure("executeQuery", () -> {
+            logger.debug("getQueryResults called for query:"+query+" with profile:"+profile.getName());
+            List<CmisObject> objList = new ArrayList<>();
+            OperationContext context = profile.toOperationContext(session);
+        	// execute query
+        	ItemIterable<QueryResult> results = session.query(query, false, context);
+            logger.debug("items:"+results.getPageNumItems());
+            if (maxNumItems == 0){
+                results = results.getPage();
+            }else{                
+                results = results.getPage(maxNumItems);
+            }
+            logger.debug("query executed");
+        	for (QueryResult qResult : results) {
+                String objectId = getObjectId(qResult);
+                logger.debug("Object recovered from query with id:"+objectId);
+                CmisObject obj = session.getObject(session.createObjectId(objectId), context);
+                objList.add(obj);
+        	}
+        	return objList;
+        });
+    }
+
+    /**
+     * Executes a query in the server or in the cache and returns the rows as QueryItem objects. Unlike
+     * {@link #executeQuery(Session, String, int, boolean)} this method does not make a call to the server
+     * for every row: the QueryItem objects are built with the properties of the SELECT list that the server
+     * has already returned. Call {@link QueryItem#getObject(Session)} to retrieve the full object when you need it.
+     * <br>
+     * Remember to include cmis:objectId in the SELECT list or use select *
+     *
+     * @param session a Session object that is connected with the server
+     * @param query a String that contains the query to be executed
+     * @param maxNumItems a int that represent the max number of items to be retrieved. If this value is equal to 0 then there
+     * is no limitation.
+     * @param cache a boolean. True indicates that cache is used and false indicates that the
+     * query is executed in the server
+     * @return a List<info.estebanluengo.alfrescoAPI.QueryItem> with a QueryItem for every row
+     */
+    public static List<QueryItem> executeQueryItems(Session session, String query, int maxNumItems, boolean cache) {
+        return executeQueryItems(session, query, maxNumItems, ContextProfile.FULL.withCache(cache));
+    }
+
+    /**
+     * Executes a query and returns the rows as QueryItem objects. The properties of every row are the ones of the
+     * SELECT list, the profile sets the page size and the cache flag.
+     *
+     * @param session a Session object that is connected with the server
+     * @param query a String that contains the query to be executed
+     * @param maxNumItems a int that represent the max number of items to be retrieved. If this value is equal to 0 then there
+     * is no limitation.
+     * @param profile a ContextProfile with the page size and the cache flag
+     * @return a List<info.estebanluengo.alfrescoAPI.QueryItem> with a QueryItem for every row
+     */
+    public static List<QueryItem> executeQueryItems(Session session, String query, int maxNumItems, ContextProfile profile) {
+        return Metrics.measure("executeQueryItems", () -> {
+            logger.debug("executeQueryItems called for query:"+query+" with profile:"+profile.getName());
+            List<QueryItem> itemList = new ArrayList<>();
+            OperationContext context = profile.toOperationContext(session);
+            ItemIterable<QueryResult> results = session.query(query, false, context);
+            if (maxNumItems == 0){
+                results = results.getPage();
+            }else{
+                results = results.getPage(maxNumItems);
+            }
+            for (QueryResult qResult : results) {
+                itemList.add(new QueryItem(getObjectId(qResult), qResult));
+            }
+            logger.debug("query executed. items:"+itemList.size());
+            return itemList;
+        });
+    }
+
+    /**
+     * Executes a query and returns an iterator that walks all the rows of the result fetching the pages from the server
+     * as the consumer advances. There is no limit in the number of rows and only the current page plus the prefetched
+     * pages are kept in memory.
+     * <br>
+     * Call {@link QueryIterator#close()} if the iteration is not completed.
+     *
+     * @param session a Session object that is connected with the server
+     * @param query a String that contains the query to be executed
+     * @param pageSize a int with the number of rows fetched in every call to the server
+     * @param prefetchPages a int with the number of pages fetched in advance by a background thread. 0 means that the
+     * pages are fetched by the consumer thread when it needs them
+     * @param cache a boolean. True indicates that cache is used and false indicates that the
+     * query is executed in the server
+     * @return a QueryIterator with the rows of the query as QueryItem objects
+     */
+    public static QueryIterator executeQueryIterator(Session session, String query, int pageSize, int prefetchPages, boolean cache) {
+        return Metrics.measure("executeQueryIterator", () -> {
+            logger.debug("executeQueryIterator called for query:"+query);
+            return new QueryIterator(session, query, pageSize, prefetchPages, cache);
+        });
+    }
+
+    /**
+     * Gets the object Id of a query result row. The bindings do not fill the rows in the same way: AtomPub gives
+     * the property Id, Web Services gives the query name with the alias of the table (d.cmis:objectId) and the
+     * Browser binding gives the query name as the Id. All of them are accepted.
+     *
+     * @param qResult a QueryResult object
+     * @return a String with the object Id or null if the query does not select the object Id
+     */
+    static String getObjectId(QueryResult qResult) {
+        PropertyData<?> propData = qResult.getPropertyById(PropertyIds.OBJECT_ID);
+        if (propData == null) {
+            for (PropertyData<?> candidate : qResult.getProperties()) {
+                if (isObjectId(candidate.getId()) || isObjectId(candidate.getQueryName())) {
+                    propData = candidate;
+                    break;
+                }
+            }
         }
-        logger.debug("query executed");
-    	for (QueryResult qResult : results) {
-            String objectId;
-            PropertyData<?> propData = qResult.getPropertyById("cmis:objectId"); // Atom Pub binding
-            if (propData != null) {
-                    objectId = (String) propData.getFirstValue();
-            } else {
-                    objectId = qResult.getPropertyValueByQueryName("d.cmis:objectId"); // Web Services binding
-            }
-            logger.debug("Object recovered from query with id:"+objectId);
-            CmisObject obj = session.getObject(session.createObjectId(objectId));
-            objList.add(obj);
-    	}
-    	return objList;
+        return propData == null ? null : (String) propData.getFirstValue();
+    }
+
+    private static boolean isObjectId(String name) {
+        return name != null && (name.equals(PropertyIds.OBJECT_ID) || name.endsWith("."+PropertyIds.OBJECT_ID));
     }
     
     /**
@@ -673,8 +1571,28 @@ public class AlfrescoAPI {
      * of CmisObject to be returned      
      */
     public static List<CmisObject> findDocumentsByText(Session session, String keyword, int maxNumItems, boolean cache) {
-        logger.debug("getQueryResults called for keyword:"+keyword);
-        return executeQuery(session, "select * from cmis:document where contains('"+keyword+"')", maxNumItems, cache);
+        return Metrics.measure("findDocumentsByText", () -> {
+            logger.debug("getQueryResults called for keyword:"+keyword);
+            return executeQuery(session, "select * from cmis:document where contains('"+keyword+"')", maxNumItems, cache);
+        });
+    }
+
+    /**
+     * Finds a list of documents that contain the keyword retrieving only what the profile asks for
+     *
+     * @param session a Session object that is connected with the server
+     * @param keyword a String that represent the word to use in the full scan
+     * @param maxNumItems a int that represent the max number of items to be retrieved. If this value is equal to 0 then there
+     * is no limitation.
+     * @param profile a ContextProfile with the properties to be retrieved, the page size and the cache flag
+     * @return a List<org.apache.chemistry.opencmis.client.api.CmisObject> that contains the list
+     * of CmisObject to be returned
+     */
+    public static List<CmisObject> findDocumentsByText(Session session, String keyword, int maxNumItems, ContextProfile profile) {
+        return Metrics.measure("findDocumentsByText", () -> {
+            logger.debug("getQueryResults called for keyword:"+keyword);
+            return executeQuery(session, "select * from cmis:document where contains('"+keyword+"')", maxNumItems, profile);
+        });
     }
     
     /**
@@ -689,8 +1607,28 @@ public class AlfrescoAPI {
      * of CmisObject to be returned      
      */
     public static List<CmisObject> findDocumentsInFolder(Session session, Folder folder, int maxNumItems, boolean cacheEnable) {
-        logger.debug("getQueryResults called for folderName:"+folder.getName());
-        return executeQuery(session, "select * from cmis:document where IN_FOLDER('workspace://SpacesStore/"+folder.getId()+"')", maxNumItems, cacheEnable);
+        return Metrics.measure("findDocumentsInFolder", () -> {
+            logger.debug("getQueryResults called for folderName:"+folder.getName());
+            return executeQuery(session, "select * from cmis:document where IN_FOLDER('workspace://SpacesStore/"+folder.getId()+"')", maxNumItems, cacheEnable);
+        });
+    }
+
+    /**
+     * Finds the documents that are in the folder retrieving only what the profile asks for
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object where we want to get the documents
+     * @param maxNumItems a int that represent the max number of items to be retrieved. If this value is equal to 0 then there
+     * is no limitation.
+     * @param profile a ContextProfile with the properties to be retrieved, the page size and the cache flag
+     * @return a List<org.apache.chemistry.opencmis.client.api.CmisObject> that contains the list
+     * of CmisObject to be returned
+     */
+    public static List<CmisObject> findDocumentsInFolder(Session session, Folder folder, int maxNumItems, ContextProfile profile) {
+        return Metrics.measure("findDocumentsInFolder", () -> {
+            logger.debug("getQueryResults called for folderName:"+folder.getName());
+            return executeQuery(session, "select * from cmis:document where IN_FOLDER('workspace://SpacesStore/"+folder.getId()+"')", maxNumItems, profile);
+        });
     }
     
 }
\ No newline at end of file
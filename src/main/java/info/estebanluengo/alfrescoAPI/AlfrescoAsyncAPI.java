@@ -0,0 +1,302 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Asynchronous facade over {@link AlfrescoAPI}. Every method returns a CompletableFuture at once and the call to the
+ * server is made in the executor. By default the executor starts a virtual thread for every call, so thousands of
+ * calls can be outstanding without using thousands of OS threads.
+ * <br>
+ * The number of calls that are talking to the server at the same time is limited by maxInFlight. The calls over the
+ * limit wait in their thread until another call finishes, the caller thread is never blocked. When a platform thread
+ * executor is used keep maxInFlight equal or greater than its number of threads.
+ * <br>
+ * The futures are completed with the same exception that the AlfrescoAPI method throws.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAsyncAPI implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final Session session;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    /**
+     * Creates a new facade that runs every call in a new virtual thread with at most DEFAULT_MAX_IN_FLIGHT calls in flight
+     *
+     * @param session a Session object that is connected with the server
+     */
+    public AlfrescoAsyncAPI(Session session) {
+        this(session, null, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Creates a new facade
+     *
+     * @param session a Session object that is connected with the server
+     * @param executor an ExecutorService where the calls are executed or null to use a new virtual thread for every call.
+     * An executor given here is not shut down by {@link #close()}
+     * @param maxInFlight a int with the max number of calls that are executed at the same time
+     */
+    public AlfrescoAsyncAPI(Session session, ExecutorService executor, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        this.session = session;
+        this.ownExecutor = executor == null;
+        this.executor = ownExecutor ? Executors.newVirtualThreadPerTaskExecutor() : executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Runs any operation asynchronously with the same in-flight limit as the rest of methods
+     *
+     * @param <T> the type of the result
+     * @param operation a Callable with the operation to be executed
+     * @return a CompletableFuture completed with the result or with the exception thrown by the operation
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> run(operation, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void run(Callable<T> operation, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            //cancelled by the caller before starting
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        T result = null;
+        Throwable error = null;
+        try {
+            result = operation.call();
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+        //the slot is free before the callers and the dependent stages are woken up
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * @see AlfrescoAPI#createFolder(Session, Folder, String)
+     */
+    public CompletableFuture<Folder> createFolder(Folder parentFolder, String folderName) {
+        return submit(() -> AlfrescoAPI.createFolder(session, parentFolder, folderName));
+    }
+
+    /**
+     * @see AlfrescoAPI#createFolders(Session, Folder, String)
+     */
+    public CompletableFuture<Folder> createFolders(Folder parentFolder, String foldersPath) {
+        return submit(() -> AlfrescoAPI.createFolders(session, parentFolder, foldersPath));
+    }
+
+    /**
+     * @see AlfrescoAPI#getFolderByName(Session, Folder, String)
+     */
+    public CompletableFuture<Folder> getFolderByName(Folder parentFolder, String folderName) {
+        return submit(() -> AlfrescoAPI.getFolderByName(session, parentFolder, folderName));
+    }
+
+    /**
+     * @see AlfrescoAPI#getFolders(Session, Folder, ContextProfile)
+     */
+    public CompletableFuture<List<Folder>> getFolders(Folder parentFolder, ContextProfile profile) {
+        return submit(() -> AlfrescoAPI.getFolders(session, parentFolder, profile));
+    }
+
+    /**
+     * @see AlfrescoAPI#createDocument(Session, Folder, String, byte[], String)
+     */
+    public CompletableFuture<Document> createDocument(Folder folder, String fileName, byte[] content, String mimeType) {
+        return submit(() -> AlfrescoAPI.createDocument(session, folder, fileName, content, mimeType));
+    }
+
+    /**
+     * @see AlfrescoAPI#createDocument(Session, Folder, String, byte[], String, String, Map)
+     */
+    public CompletableFuture<Document> createDocument(Folder folder, String fileName, byte[] content, String mimeType,
+            String docType, Map<String, Object> docProps) {
+        return submit(() -> AlfrescoAPI.createDocument(session, folder, fileName, content, mimeType, docType, docProps));
+    }
+
+    /**
+     * @see AlfrescoAPI#createDocument(Session, Folder, Path, String)
+     */
+    public CompletableFuture<Document> createDocument(Folder folder, Path file, String mimeType) {
+        return submit(() -> AlfrescoAPI.createDocument(session, folder, file, mimeType));
+    }
+
+    /**
+     * @see AlfrescoAPI#getDocument(Session, String, ContextProfile)
+     */
+    public CompletableFuture<Document> getDocument(String docId, ContextProfile profile) {
+        return submit(() -> AlfrescoAPI.getDocument(session, docId, profile));
+    }
+
+    /**
+     * @see AlfrescoAPI#getDocument(Session, String, boolean)
+     */
+    public CompletableFuture<Document> getDocument(String docId, boolean cache) {
+        return submit(() -> AlfrescoAPI.getDocument(session, docId, cache));
+    }
+
+    /**
+     * @see AlfrescoAPI#getDocumentContent(Session, String)
+     */
+    public CompletableFuture<byte[]> getDocumentContent(String docId) {
+        return submit(() -> AlfrescoAPI.getDocumentContent(session, docId));
+    }
+
+    /**
+     * @see AlfrescoAPI#getDocumentContent(Session, String, Path)
+     */
+    public CompletableFuture<Long> getDocumentContent(String docId, Path file) {
+        return submit(() -> AlfrescoAPI.getDocumentContent(session, docId, file));
+    }
+
+    /**
+     * @see AlfrescoAPI#updateDocument(Session, Document, byte[], String, Map, boolean, String)
+     */
+    public CompletableFuture<Document> updateDocument(Document doc, byte[] newContent, String mimeType,
+            Map<String, Object> docProps, boolean majorVersion, String checkinComment) {
+        return submit(() -> AlfrescoAPI.updateDocument(session, doc, newContent, mimeType, docProps, majorVersion, checkinComment));
+    }
+
+    /**
+     * @see AlfrescoAPI#updateDocumentProperties(Session, Document, Map)
+     */
+    public CompletableFuture<Document> updateDocumentProperties(Document doc, Map<String, Object> updateProperties) {
+        return submit(() -> AlfrescoAPI.updateDocumentProperties(session, doc, updateProperties));
+    }
+
+    /**
+     * @see AlfrescoAPI#deleteDocument(Session, String, boolean)
+     */
+    public CompletableFuture<Void> deleteDocument(String docId, boolean allVersions) {
+        return submit(() -> {
+            AlfrescoAPI.deleteDocument(session, docId, allVersions);
+            return null;
+        });
+    }
+
+    /**
+     * @see AlfrescoAPI#deleteFolder(Session, Folder, boolean)
+     */
+    public CompletableFuture<Void> deleteFolder(Folder folder, boolean allVersions) {
+        return submit(() -> {
+            AlfrescoAPI.deleteFolder(session, folder, allVersions);
+            return null;
+        });
+    }
+
+    /**
+     * @see AlfrescoAPI#executeQuery(Session, String, int, ContextProfile)
+     */
+    public CompletableFuture<List<CmisObject>> executeQuery(String query, int maxNumItems, ContextProfile profile) {
+        return submit(() -> AlfrescoAPI.executeQuery(session, query, maxNumItems, profile));
+    }
+
+    /**
+     * @see AlfrescoAPI#executeQueryItems(Session, String, int, boolean)
+     */
+    public CompletableFuture<List<QueryItem>> executeQueryItems(String query, int maxNumItems, boolean cache) {
+        return submit(() -> AlfrescoAPI.executeQueryItems(session, query, maxNumItems, cache));
+    }
+
+    /**
+     * Gets the number of calls that are being executed now
+     *
+     * @return a int between 0 and maxInFlight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the max number of calls that have been executed at the same time
+     *
+     * @return a int between 0 and maxInFlight
+     */
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Shuts down the executor if it was created by this object. The calls already submitted are completed.
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            logger.debug("closing the async executor");
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisContentAlreadyExistsException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Imports a local directory tree into a folder of the server. The import is a pipeline of three stages connected by
+ * bounded queues:
+ * <ol>
+ * <li>walk: the calling thread walks the directory tree. It waits when the next queue is full, so the files are never
+ * read faster than they can be uploaded</li>
+ * <li>folders: the folder workers find or create the folder of every file with
+ * {@link AlfrescoAPI#createFolders(Session, Folder, String)}. Every folder is resolved only once</li>
+ * <li>upload: the upload workers stream the files to the server</li>
+ * </ol>
+ * If skipExisting is true a file is not uploaded when its folder already has a document with the same name, so an
+ * interrupted import can be executed again to import only the missing files. A file that can not be imported is
+ * recorded in the report and the rest of files are imported anyway.
+ * <br>
+ * Example:
+ * <pre>
+ * BulkImporter importer = new BulkImporter(session);
+ * importer.setUploadWorkers(16);
+ * ImportReport report = importer.importDirectory(Paths.get("/data/archive"), targetFolder);
+ * </pre>
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class BulkImporter {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int DEFAULT_FOLDER_WORKERS = 2;
+    public static final int DEFAULT_UPLOAD_WORKERS = 8;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    public static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+    //marks the end of a queue. One is queued for every worker of the next stage
+    private static final ImportItem END = new ImportItem(null, null, false);
+
+    private final Session session;
+    private int folderWorkers = DEFAULT_FOLDER_WORKERS;
+    private int uploadWorkers = DEFAULT_UPLOAD_WORKERS;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private boolean skipExisting = true;
+
+    /**
+     * Creates a new importer with the default number of workers and queue capacity
+     *
+     * @param session a Session object that is connected with the server
+     */
+    public BulkImporter(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Imports the content of the directory into the folder. The directory itself is not created, its files and
+     * subdirectories are created directly in the folder.
+     *
+     * @param sourceDir a Path to the directory to be imported
+     * @param targetFolder a Folder object where the files are imported
+     * @return an ImportReport with the documents uploaded, the files skipped and the failures
+     * @throws IOException if sourceDir can not be read or the thread is interrupted
+     */
+    public ImportReport importDirectory(Path sourceDir, Folder targetFolder) throws IOException {
+        logger.debug("importDirectory called for directory:"+sourceDir+" folderWorkers:"+folderWorkers+" uploadWorkers:"+uploadWorkers);
+        if (!Files.isDirectory(sourceDir)) {
+            throw new IOException("Not a directory: "+sourceDir);
+        }
+        Run run = new Run(sourceDir, targetFolder);
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(folderWorkers + uploadWorkers);
+        try {
+            CountDownLatch foldersDone = new CountDownLatch(folderWorkers);
+            run.folders.start();
+            for (int i = 0; i < folderWorkers; i++) {
+                pool.execute(() -> {
+                    try {
+                        run.resolveFolders();
+                    } finally {
+                        foldersDone.countDown();
+                    }
+                });
+            }
+            run.upload.start();
+            for (int i = 0; i < uploadWorkers; i++) {
+                pool.execute(run::uploadFiles);
+            }
+            run.walk();
+            for (int i = 0; i < folderWorkers; i++) {
+                run.folderQueue.put(END);
+            }
+            foldersDone.await();
+            run.folders.stop();
+            for (int i = 0; i < uploadWorkers; i++) {
+                run.uploadQueue.put(END);
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            run.upload.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing "+sourceDir);
+        } finally {
+            pool.shutdownNow();
+        }
+        ImportReport report = new ImportReport(run.upload.getItems(), run.skipped.get(), run.failures,
+                System.currentTimeMillis() - start, run.walk, run.folders, run.upload);
+        logger.debug("import finished:"+report);
+        return report;
+    }
+
+    public int getFolderWorkers() {
+        return folderWorkers;
+    }
+
+    /**
+     * Sets the number of threads that find or create the folders
+     *
+     * @param folderWorkers a int greater than 0
+     */
+    public void setFolderWorkers(int folderWorkers) {
+        if (folderWorkers <= 0) {
+            throw new IllegalArgumentException("folderWorkers must be greater than 0");
+        }
+        this.folderWorkers = folderWorkers;
+    }
+
+    public int getUploadWorkers() {
+        return uploadWorkers;
+    }
+
+    /**
+     * Sets the number of threads that upload the files. It is the max number of uploads at the same time
+     *
+     * @param uploadWorkers a int greater than 0
+     */
+    public void setUploadWorkers(int uploadWorkers) {
+        if (uploadWorkers <= 0) {
+            throw new IllegalArgumentException("uploadWorkers must be greater than 0");
+        }
+        this.uploadWorkers = uploadWorkers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the max number of items waiting between two stages
+     *
+     * @param queueCapacity a int greater than 0
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than 0");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isSkipExisting() {
+        return skipExisting;
+    }
+
+    /**
+     * Sets if the files that already exist in the server are skipped. When it is false and a document with the same
+     * name exists the file is recorded as a failure
+     *
+     * @param skipExisting a boolean. True indicates that the files already imported are skipped
+     */
+    public void setSkipExisting(boolean skipExisting) {
+        this.skipExisting = skipExisting;
+    }
+
+    /**
+     * A file or a directory of the tree. Directories are also queued so the empty ones are created too
+     */
+    private static final class ImportItem {
+        final Path path;
+        final String relativeDir;
+        final boolean directory;
+        FolderEntry folder;
+
+        ImportItem(Path path, String relativeDir, boolean directory) {
+            this.path = path;
+            this.relativeDir = relativeDir;
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * A folder of the server with the names and sizes of the documents it had when it was resolved
+     */
+    private static final class FolderEntry {
+        final Folder folder;
+        final Map<String, Long> existingDocuments;
+
+        FolderEntry(Folder folder, Map<String, Long> existingDocuments) {
+            this.folder = folder;
+            this.existingDocuments = existingDocuments;
+        }
+    }
+
+    /**
+     * The state of one call to importDirectory
+     */
+    private final class Run {
+        final Path sourceDir;
+        final Folder targetFolder;
+        final BlockingQueue<ImportItem> folderQueue = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<ImportItem> uploadQueue = new ArrayBlockingQueue<>(queueCapacity);
+        final ConcurrentMap<String, FolderEntry> resolvedFolders = new ConcurrentHashMap<>();
+        final SingleFlight<String, FolderEntry> folderResolutions = new SingleFlight<>();
+        final Map<Path, Exception> failures = new ConcurrentHashMap<>();
+        final AtomicLong skipped = new AtomicLong();
+        final StageMetrics walk = new StageMetrics("walk", 1);
+        final StageMetrics folders = new StageMetrics("folders", folderWorkers);
+        final StageMetrics upload = new StageMetrics("upload", uploadWorkers);
+
+        Run(Path sourceDir, Folder targetFolder) {
+            this.sourceDir = sourceDir;
+            this.targetFolder = targetFolder;
+        }
+
+        void walk() throws IOException, InterruptedException {
+            walk.start();
+            try {
+                Files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                        if (!dir.equals(sourceDir)) {
+                            enqueue(new ImportItem(dir, relativePath(dir), true), 0);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (attrs.isRegularFile()) {
+                            enqueue(new ImportItem(file, relativePath(file.getParent()), false), attrs.size());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        failures.put(file, exc);
+                        walk.recordError(0);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (InterruptedIOException e) {
+                throw new InterruptedException(e.getMessage());
+            } finally {
+                walk.stop();
+            }
+        }
+
+        private void enqueue(ImportItem item, long size) throws InterruptedIOException {
+            long start = System.nanoTime();
+            try {
+                folderQueue.put(item);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while walking "+sourceDir);
+            }
+            walk.record(size, System.nanoTime() - start);
+        }
+
+        private String relativePath(Path dir) {
+            StringBuilder sb = new StringBuilder();
+            for (Path name : sourceDir.relativize(dir)) {
+                if (name.toString().isEmpty()) {
+                    continue;
+                }
+                if (sb.length() > 0) {
+                    sb.append('/');
+                }
+                sb.append(name.toString());
+            }
+            return sb.toString();
+        }
+
+        void resolveFolders() {
+            try {
+                while (true) {
+                    ImportItem item = folderQueue.take();
+                    if (item == END) {
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        item.folder = getFolder(item.relativeDir);
+                        folders.record(0, System.nanoTime() - start);
+                        if (!item.directory) {
+                            uploadQueue.put(item);
+                        }
+                    } catch (RuntimeException e) {
+                        logger.debug("folder could not be resolved:"+item.relativeDir, e);
+                        failures.put(item.path, e);
+                        folders.recordError(System.nanoTime() - start);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private FolderEntry getFolder(final String relativeDir) {
+            FolderEntry entry = resolvedFolders.get(relativeDir);
+            if (entry != null) {
+                return entry;
+            }
+            return folderResolutions.execute(relativeDir, () -> {
+                FolderEntry resolved = resolvedFolders.get(relativeDir);
+                if (resolved == null) {
+                    Folder folder = relativeDir.isEmpty() ? targetFolder : AlfrescoAPI.createFolders(session, targetFolder, relativeDir);
+                    resolved = new FolderEntry(folder, skipExisting ? listDocuments(folder) : Collections.<String, Long>emptyMap());
+                    resolvedFolders.put(relativeDir, resolved);
+                }
+                return resolved;
+            });
+        }
+
+        private Map<String, Long> listDocuments(Folder folder) {
+            Map<String, Long> documents = new ConcurrentHashMap<>();
+            for (CmisObject child : folder.getChildren(ContextProfile.LISTING.toOperationContext(session))) {
+                if (child instanceof Document) {
+                    documents.put(child.getName(), ((Document) child).getContentStreamLength());
+                }
+            }
+            return documents;
+        }
+
+        void uploadFiles() {
+            try {
+                while (true) {
+                    ImportItem item = uploadQueue.take();
+                    if (item == END) {
+                        return;
+                    }
+                    upload(item);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void upload(ImportItem item) {
+            long start = System.nanoTime();
+            String fileName = item.path.getFileName().toString();
+            try {
+                long size = Files.size(item.path);
+                Long existingSize = item.folder.existingDocuments.get(fileName);
+                if (existingSize != null && existingSize == size) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                if (existingSize != null) {
+                    throw new CmisContentAlreadyExistsException("A document with a different size already exists: "+fileName);
+                }
+                AlfrescoAPI.createDocument(session, item.folder.folder, item.path, getMimeType(item.path));
+                upload.record(size, System.nanoTime() - start);
+            } catch (CmisContentAlreadyExistsException e) {
+                if (skipExisting && item.folder.existingDocuments.get(fileName) == null) {
+                    //created after the folder was listed, by another import of the same tree
+                    skipped.incrementAndGet();
+                } else {
+                    failures.put(item.path, e);
+                    upload.recordError(System.nanoTime() - start);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("file could not be uploaded:"+item.path, e);
+                failures.put(item.path, e);
+                upload.recordError(System.nanoTime() - start);
+            }
+        }
+
+        private String getMimeType(Path file) throws IOException {
+            String mimeType = Files.probeContentType(file);
+            return mimeType != null ? mimeType : DEFAULT_MIME_TYPE;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.List;
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+
+/**
+ * Receives the changes read from the change log of the repository by a {@link ChangeLogPoller}. The method is called
+ * from the thread of the poller, so implementations must be fast or hand the events to another thread.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public interface ChangeListener {
+
+    /**
+     * Called with every batch of changes, in the order of the change log. The caches of AlfrescoAPI have been
+     * invalidated before the call. A change may be received again after a restart of the poller, so implementations
+     * must accept the same change twice.
+     *
+     * @param events a List<ChangeEvent> with the changes of the batch. It can not be modified
+     */
+    void onChanges(List<ChangeEvent> events);
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityChanges;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads the change log of the repository in the background and keeps the caches of AlfrescoAPI up to date with the
+ * changes made by other clients. Every change removes the object from the {@link ObjectCache} and the folder from the
+ * {@link FolderCache}, then the changes are given to the {@link ChangeListener} objects added to the poller. The
+ * caches compare the Ids without the version label that Alfresco adds to the Ids of the documents, because the
+ * change log may not have it.
+ * <br>
+ * The change log token of the last change read is kept in memory or, if a token file is set, in the file, so a new
+ * poller continues where the previous one stopped. Without a token the poller starts with the latest change of the
+ * repository and does not read the history. The repository must support the change log; Alfresco needs the audit
+ * of the changes enabled (audit.enabled=true and audit.cmischangelog.enabled=true).
+ * <br>
+ * The lag is the time between the change in the server and the moment it is given to the listeners, so it includes
+ * the difference between the clocks of the server and the client.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class ChangeLogPoller implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 5000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Session session;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private Path tokenFile;
+    private ScheduledExecutorService scheduler;
+
+    private volatile String changeLogToken;
+    //the repository returns the change of the token again as the first change of the next batch
+    private ChangeEvent lastEvent;
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong failedPolls = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private volatile long lagMillis;
+    private volatile long maxLagMillis;
+    private volatile long lastPollAt;
+
+    /**
+     * Creates a new ChangeLogPoller. Call {@link #start()} to start polling
+     *
+     * @param session a Session object that is connected with the server
+     */
+    public ChangeLogPoller(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Starts polling the change log in a background thread every pollIntervalMillis
+     *
+     * @throws IllegalStateException if the repository does not support the change log or the poller is started
+     * @throws IOException if the token file can not be read
+     */
+    public synchronized void start() throws IOException {
+        if (scheduler != null) {
+            throw new IllegalStateException("The poller is already started");
+        }
+        if (!isSupported(session)) {
+            throw new IllegalStateException("The repository does not support the change log");
+        }
+        if (changeLogToken == null) {
+            changeLogToken = readToken();
+        }
+        if (changeLogToken == null) {
+            changeLogToken = getLatestChangeLogToken();
+        }
+        logger.debug("change log poller started with token:"+changeLogToken);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alfrescoAPI-changelog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks if the repository of the session has a change log
+     *
+     * @param session a Session object that is connected with the server
+     * @return true if the change log can be read
+     */
+    public static boolean isSupported(Session session) {
+        CapabilityChanges changes = session.getRepositoryInfo().getCapabilities().getChangesCapability();
+        return changes != null && changes != CapabilityChanges.NONE;
+    }
+
+    /**
+     * Reads all the changes made since the last poll. It is called by the background thread, but it can be called
+     * by any thread to read the changes right now
+     *
+     * @return a int with the number of changes read
+     * @throws IOException if the token can not be written in the token file
+     */
+    public synchronized int poll() throws IOException {
+        if (changeLogToken == null) {
+            changeLogToken = readToken();
+            if (changeLogToken == null) {
+                changeLogToken = getLatestChangeLogToken();
+            }
+        }
+        polls.incrementAndGet();
+        int read = 0;
+        boolean hasMoreItems = true;
+        while (hasMoreItems) {
+            ChangeEvents changes = session.getContentChanges(changeLogToken, false, batchSize);
+            List<ChangeEvent> batch = new ArrayList<>(changes.getChangeEvents());
+            if (!batch.isEmpty() && lastEvent != null && isSameChange(batch.get(0), lastEvent)) {
+                batch.remove(0);
+            }
+            String latestToken = changes.getLatestChangeLogToken();
+            hasMoreItems = Boolean.TRUE.equals(changes.getHasMoreItems()) && !batch.isEmpty();
+            if (!batch.isEmpty()) {
+                publish(batch);
+                lastEvent = batch.get(batch.size() - 1);
+                read += batch.size();
+            }
+            if (latestToken != null && !latestToken.equals(changeLogToken)) {
+                changeLogToken = latestToken;
+                writeToken(latestToken);
+            }
+        }
+        lastPollAt = System.currentTimeMillis();
+        logger.debug("change log polled. changes read:"+read+" token:"+changeLogToken);
+        return read;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (Exception e) {
+            //the next poll starts again from the last token saved
+            failedPolls.incrementAndGet();
+            logger.error("Error reading the change log", e);
+        }
+    }
+
+    private void publish(List<ChangeEvent> batch) {
+        for (ChangeEvent event : batch) {
+            if (event.getChangeType() != ChangeType.CREATED) {
+                AlfrescoAPI.invalidateFolder(event.getObjectId(), null);
+            }
+        }
+        events.addAndGet(batch.size());
+        List<ChangeEvent> unmodifiable = Collections.unmodifiableList(batch);
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.onChanges(unmodifiable);
+            } catch (RuntimeException e) {
+                logger.error("Error in a change listener", e);
+            }
+        }
+        ChangeEvent newest = batch.get(batch.size() - 1);
+        if (newest.getChangeTime() != null) {
+            long lag = Math.max(0, System.currentTimeMillis() - newest.getChangeTime().getTimeInMillis());
+            lagMillis = lag;
+            maxLagMillis = Math.max(maxLagMillis, lag);
+        }
+    }
+
+    private static boolean isSameChange(ChangeEvent event, ChangeEvent other) {
+        return Objects.equals(event.getObjectId(), other.getObjectId()) && event.getChangeType() == other.getChangeType()
+                && Objects.equals(event.getChangeTime(), other.getChangeTime());
+    }
+
+    private String getLatestChangeLogToken() {
+        //the repository info of the session is cached, so it is read again from the server
+        RepositoryInfo info = session.getBinding().getRepositoryService().getRepositoryInfo(session.getRepositoryInfo().getId(), null);
+        return info.getLatestChangeLogToken();
+    }
+
+    private String readToken() throws IOException {
+        if (tokenFile == null || !Files.exists(tokenFile)) {
+            return null;
+        }
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private void writeToken(String token) throws IOException {
+        if (tokenFile == null) {
+            return;
+        }
+        //a crash while writing never leaves a half written token
+        Path tmp = tokenFile.resolveSibling(tokenFile.getFileName() + ".tmp");
+        Files.write(tmp, token.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, tokenFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops polling. A poll in progress is finished
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            logger.debug("change log poller stopped with token:"+changeLogToken);
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    /**
+     * Sets the time between the end of a poll and the start of the next one. It must be set before start
+     *
+     * @param pollIntervalMillis a long with the number of milliseconds
+     */
+    public void setPollIntervalMillis(long pollIntervalMillis) {
+        if (pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("pollIntervalMillis must be greater than 0");
+        }
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the max number of changes read in every request to the server
+     *
+     * @param batchSize a int with the number of changes
+     */
+    public synchronized void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * Sets the file where the change log token is saved after every batch. It must be set before start
+     *
+     * @param tokenFile a Path to the file or null to keep the token only in memory
+     */
+    public synchronized void setTokenFile(Path tokenFile) {
+        this.tokenFile = tokenFile;
+    }
+
+    /**
+     * Gets the change log token of the last change read
+     *
+     * @return a String with the token or null if the poller has not started
+     */
+    public String getChangeLogToken() {
+        return changeLogToken;
+    }
+
+    public long getPolls() {
+        return polls.get();
+    }
+
+    /**
+     * Gets the number of polls that have thrown an exception
+     *
+     * @return a long with the number of failed polls
+     */
+    public long getFailedPolls() {
+        return failedPolls.get();
+    }
+
+    /**
+     * Gets the number of changes given to the listeners
+     *
+     * @return a long with the number of changes
+     */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /**
+     * Gets the lag of the newest change of the last batch
+     *
+     * @return a long with the milliseconds between the change in the server and its delivery to the listeners
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    /**
+     * Gets the time when the last poll finished
+     *
+     * @return a long with the time in milliseconds since the epoch or 0 if there has not been any poll
+     */
+    public long getLastPollAt() {
+        return lastPollAt;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A read only view of the content of a document returned by
+ * {@link AlfrescoAPI#getDocumentContentLease(org.apache.chemistry.opencmis.client.api.Session, String)}. When the
+ * content comes from the {@link OffHeapContentCache} the buffer is a view of its off-heap memory, which is not reused
+ * for another content until the lease is closed. Close the lease as soon as the buffer is not needed, and do not use
+ * the buffer after closing it.
+ * <br>
+ * Example:
+ * <pre>
+ * try (ContentLease lease = AlfrescoAPI.getDocumentContentLease(session, docId)) {
+ *     channel.write(lease.getBuffer());
+ * }
+ * </pre>
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public final class ContentLease implements AutoCloseable {
+
+    private final ByteBuffer buffer;
+    private final OffHeapContentCache.Entry entry;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Creates a lease of a buffer that is not owned by a cache. Closing it does nothing
+     */
+    ContentLease(ByteBuffer buffer) {
+        this(buffer, null);
+    }
+
+    ContentLease(ByteBuffer buffer, OffHeapContentCache.Entry entry) {
+        this.buffer = buffer.isReadOnly() ? buffer : buffer.asReadOnlyBuffer();
+        this.entry = entry;
+    }
+
+    /**
+     * Gets the content. Every call returns a new view with its own position, so it can be read several times
+     *
+     * @return a read only ByteBuffer from the first to the last byte of the content
+     * @throws IllegalStateException if the lease is closed
+     */
+    public ByteBuffer getBuffer() {
+        if (closed.get()) {
+            throw new IllegalStateException("The content lease is closed");
+        }
+        return buffer.duplicate();
+    }
+
+    public int getLength() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Checks if the buffer is a view of the off-heap memory of the OffHeapContentCache
+     *
+     * @return true if the content comes from the off-heap cache
+     */
+    public boolean isOffHeap() {
+        return entry != null;
+    }
+
+    /**
+     * Gives the memory back to the cache. It can be called several times
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true) && entry != null) {
+            entry.release();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+
+/**
+ * Helper methods to move document content between the server and channels without building byte arrays.
+ * The copies use direct buffers that are kept in a small pool and reused by all the threads.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+final class ContentTransfer {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    private ContentTransfer() {
+    }
+
+    /**
+     * Asks the server for the content stream of the document without retrieving the document properties
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param offset a BigInteger with the first byte to be read or null to start at the beginning
+     * @param length a BigInteger with the number of bytes to be read or null to read until the end
+     * @return a ContentStream object or null if the document has no content
+     */
+    static ContentStream openContentStream(Session session, String docId, BigInteger offset, BigInteger length) {
+        String repositoryId = session.getRepositoryInfo().getId();
+        return session.getBinding().getObjectService().getContentStream(repositoryId, docId, null, offset, length, null);
+    }
+
+    /**
+     * Reads a range of the content of the document into the buffer. The range starts at offset and has as many bytes as the
+     * remaining bytes of the buffer. If the server does not support ranges and sends the whole content, the bytes before the
+     * offset are skipped.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param offset a long with the first byte to be read
+     * @param target a ByteBuffer where the bytes are written starting at its position
+     * @return a int with the number of bytes read. It is less than the remaining bytes of the buffer if the document ends before
+     * @throws IOException if the content can not be read
+     */
+    static int readRange(Session session, String docId, long offset, ByteBuffer target) throws IOException {
+        int length = target.remaining();
+        if (length == 0) {
+            return 0;
+        }
+        try (InputStream in = openRange(session, docId, offset, length)) {
+            if (in == null) {
+                return 0;
+            }
+            ReadableByteChannel source = Channels.newChannel(in);
+            int total = 0;
+            while (target.hasRemaining()) {
+                int n = source.read(target);
+                if (n == -1) {
+                    break;
+                }
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Copies a range of the content of the document into the file channel at the same position of the range. The channel
+     * position is not used, so several threads can write different ranges into the same channel at the same time.
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param offset a long with the first byte to be read. It is also the position in the file
+     * @param length a long with the number of bytes of the range
+     * @param target a FileChannel where the range is written
+     * @return a long with the number of bytes copied. It is less than length if the document ends before
+     * @throws IOException if the content can not be read or the file can not be written
+     */
+    static long copyRange(Session session, String docId, long offset, long length, FileChannel target) throws IOException {
+        try (InputStream in = openRange(session, docId, offset, length)) {
+            if (in == null) {
+                return 0;
+            }
+            ReadableByteChannel source = Channels.newChannel(in);
+            ByteBuffer buffer = acquireBuffer();
+            try {
+                long total = 0;
+                while (total < length) {
+                    buffer.limit((int) Math.min(buffer.capacity(), length - total));
+                    int n = source.read(buffer);
+                    if (n == -1) {
+                        break;
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        total += target.write(buffer, offset + total);
+                    }
+                    buffer.clear();
+                }
+                return total;
+            } finally {
+                releaseBuffer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Opens a stream with the range of the content. If the server does not support ranges and sends the whole content,
+     * the bytes before the offset are skipped so the stream always starts at offset.
+     *
+     * @return an InputStream positioned at offset or null if the document has no content
+     */
+    private static InputStream openRange(Session session, String docId, long offset, long length) throws IOException {
+        ContentStream contentStream = openContentStream(session, docId, BigInteger.valueOf(offset), BigInteger.valueOf(length));
+        if (contentStream == null || contentStream.getStream() == null) {
+            return null;
+        }
+        InputStream in = contentStream.getStream();
+        if (offset > 0 && !(contentStream instanceof PartialContentStream)) {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = in.skip(offset - skipped);
+                if (n <= 0) {
+                    if (in.read() == -1) {
+                        break;
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Copies the InputStream into the channel. The InputStream is not closed.
+     *
+     * @param in an InputStream to be read until the end
+     * @param target a WritableByteChannel where the bytes are written
+     * @return a long with the number of bytes copied
+     * @throws IOException if the stream can not be read or the channel can not be written
+     */
+    static long copy(InputStream in, WritableByteChannel target) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(in);
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            long total = 0;
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * Gets a direct buffer from the pool or allocates a new one if the pool is empty
+     *
+     * @return a cleared direct ByteBuffer of BUFFER_SIZE bytes
+     */
+    static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        pooledBuffers.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer to the pool. The buffer can not be used after calling this method.
+     *
+     * @param buffer a ByteBuffer obtained with acquireBuffer
+     */
+    static void releaseBuffer(ByteBuffer buffer) {
+        if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            bufferPool.offer(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+
+/**
+ * A named and immutable set of options used to retrieve objects from the server: the properties to be returned,
+ * the number of items of every page and what else has to be included with every object. Asking only for what
+ * is going to be used reduces the size of the responses and the time the server spends building them.
+ * <br>
+ * A new OperationContext is built from the profile for every call, so the same profile can be used by several
+ * threads at the same time.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public final class ContextProfile {
+
+    /**
+     * Only the properties needed to identify the object
+     */
+    public static final ContextProfile ID_ONLY = new ContextProfile("id-only",
+            filter(PropertyIds.OBJECT_ID, PropertyIds.BASE_TYPE_ID, PropertyIds.OBJECT_TYPE_ID),
+            false, IncludeRelationships.NONE, false, 1000, false);
+
+    /**
+     * The properties usually shown in a list of documents and folders
+     */
+    public static final ContextProfile LISTING = new ContextProfile("listing",
+            filter(PropertyIds.OBJECT_ID, PropertyIds.BASE_TYPE_ID, PropertyIds.OBJECT_TYPE_ID, PropertyIds.NAME,
+                    PropertyIds.PATH, PropertyIds.PARENT_ID, PropertyIds.CREATED_BY, PropertyIds.CREATION_DATE,
+                    PropertyIds.LAST_MODIFIED_BY, PropertyIds.LAST_MODIFICATION_DATE, PropertyIds.CHANGE_TOKEN,
+                    PropertyIds.CONTENT_STREAM_LENGTH, PropertyIds.CONTENT_STREAM_MIME_TYPE,
+                    PropertyIds.CONTENT_STREAM_FILE_NAME, PropertyIds.VERSION_LABEL, PropertyIds.VERSION_SERIES_ID,
+                    PropertyIds.IS_LATEST_VERSION),
+            false, IncludeRelationships.NONE, false, 500, false);
+
+    /**
+     * All the properties and the allowable actions. It is what a new OperationContext of the session asks for
+     */
+    public static final ContextProfile FULL = new ContextProfile("full", null, true, IncludeRelationships.NONE, true, 100, false);
+
+    /**
+     * All the properties and the relationships where the object is the source
+     */
+    public static final ContextProfile WITH_RELATIONSHIPS = new ContextProfile("with-relationships", null, true,
+            IncludeRelationships.SOURCE, true, 100, false);
+
+    private final String name;
+    private final Set<String> filter;
+    private final boolean includeAllowableActions;
+    private final IncludeRelationships includeRelationships;
+    private final boolean includePathSegments;
+    private final int maxItemsPerPage;
+    private final boolean cacheEnabled;
+
+    /**
+     * Creates a new profile
+     *
+     * @param name a String with the name of the profile
+     * @param filter a Set<String> with the Ids of the properties to be returned or null to return all the properties
+     * @param includeAllowableActions a boolean. True indicates that the allowable actions of every object are returned
+     * @param includeRelationships an IncludeRelationships with the relationships to be returned
+     * @param includePathSegments a boolean. True indicates that the path segments of the children are returned
+     * @param maxItemsPerPage a int with the number of items retrieved in every call to the server
+     * @param cacheEnabled a boolean. True indicates that the session cache is used
+     */
+    public ContextProfile(String name, Set<String> filter, boolean includeAllowableActions, IncludeRelationships includeRelationships,
+            boolean includePathSegments, int maxItemsPerPage, boolean cacheEnabled) {
+        if (maxItemsPerPage <= 0) {
+            throw new IllegalArgumentException("maxItemsPerPage must be greater than 0");
+        }
+        this.name = name;
+        this.filter = filter == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(filter));
+        this.includeAllowableActions = includeAllowableActions;
+        this.includeRelationships = includeRelationships;
+        this.includePathSegments = includePathSegments;
+        this.maxItemsPerPage = maxItemsPerPage;
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    private static Set<String> filter(String... propertyIds) {
+        return new LinkedHashSet<>(Arrays.asList(propertyIds));
+    }
+
+    /**
+     * Returns a copy of this profile with the cache enabled or disabled
+     *
+     * @param cache a boolean. True indicates that the session cache is used
+     * @return a ContextProfile with the same name and options
+     */
+    public ContextProfile withCache(boolean cache) {
+        if (cache == cacheEnabled) {
+            return this;
+        }
+        return new ContextProfile(name, filter, includeAllowableActions, includeRelationships, includePathSegments, maxItemsPerPage, cache);
+    }
+
+    /**
+     * Returns a copy of this profile with other page size
+     *
+     * @param pageSize a int with the number of items retrieved in every call to the server
+     * @return a ContextProfile with the same name and options
+     */
+    public ContextProfile withPageSize(int pageSize) {
+        if (pageSize == maxItemsPerPage) {
+            return this;
+        }
+        return new ContextProfile(name, filter, includeAllowableActions, includeRelationships, includePathSegments, pageSize, cacheEnabled);
+    }
+
+    /**
+     * Builds a new OperationContext of the session with the options of this profile. ACLs, policies and renditions
+     * are never included.
+     *
+     * @param session a Session object that is connected with the server
+     * @return a new OperationContext
+     */
+    public OperationContext toOperationContext(Session session) {
+        OperationContext oc = session.createOperationContext();
+        if (filter != null) {
+            oc.setFilter(filter);
+        }
+        oc.setIncludeAcls(false);
+        oc.setIncludePolicies(false);
+        oc.setRenditionFilterString("cmis:none");
+        oc.setIncludeAllowableActions(includeAllowableActions);
+        oc.setIncludeRelationships(includeRelationships);
+        oc.setIncludePathSegments(includePathSegments);
+        oc.setMaxItemsPerPage(maxItemsPerPage);
+        oc.setCacheEnabled(cacheEnabled);
+        return oc;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the Ids of the properties to be returned
+     *
+     * @return a Set<String> that can not be modified or null if all the properties are returned
+     */
+    public Set<String> getFilter() {
+        return filter;
+    }
+
+    public boolean isIncludeAllowableActions() {
+        return includeAllowableActions;
+    }
+
+    public IncludeRelationships getIncludeRelationships() {
+        return includeRelationships;
+    }
+
+    public boolean isIncludePathSegments() {
+        return includePathSegments;
+    }
+
+    public int getMaxItemsPerPage() {
+        return maxItemsPerPage;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Two profiles are equal when they ask for the same data, even if their names are not the same
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ContextProfile)) {
+            return false;
+        }
+        ContextProfile other = (ContextProfile) obj;
+        return Objects.equals(filter, other.filter) && includeAllowableActions == other.includeAllowableActions
+                && includeRelationships == other.includeRelationships && includePathSegments == other.includePathSegments
+                && maxItemsPerPage == other.maxItemsPerPage && cacheEnabled == other.cacheEnabled;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filter, includeAllowableActions, includeRelationships, includePathSegments, maxItemsPerPage, cacheEnabled);
+    }
+
+    @Override
+    public String toString() {
+        return "ContextProfile[" + name + ", filter=" + (filter == null ? "*" : filter) + ", pageSize=" + maxItemsPerPage
+                + ", cache=" + cacheEnabled + "]";
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.math.BigInteger;
+import java.util.Map;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.DefaultHttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+/**
+ * HttpInvoker that counts the requests made to the server for {@link Metrics} and sends them with another HttpInvoker.
+ * The class of the HttpInvoker that sends the requests is read from the session parameter {@link #DELEGATE_CLASS}. If
+ * it is not set the default HttpInvoker of OpenCMIS is used.
+ * <br>
+ * OpenCMIS creates one instance for every session.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class CountingHttpInvoker implements HttpInvoker {
+
+    /**
+     * Session parameter with the class name of the HttpInvoker that sends the requests
+     */
+    public static final String DELEGATE_CLASS = "alfrescoAPI.httpInvoker.delegate";
+
+    private volatile HttpInvoker delegate;
+
+    @Override
+    public Response invokeGET(UrlBuilder url, BindingSession session) {
+        Metrics.roundTrip();
+        return getDelegate(session).invokeGET(url, session);
+    }
+
+    @Override
+    public Response invokeGET(UrlBuilder url, BindingSession session, BigInteger offset, BigInteger length) {
+        Metrics.roundTrip();
+        return getDelegate(session).invokeGET(url, session, offset, length);
+    }
+
+    @Override
+    public Response invokePOST(UrlBuilder url, String contentType, Output writer, BindingSession session) {
+        Metrics.roundTrip();
+        return getDelegate(session).invokePOST(url, contentType, writer, session);
+    }
+
+    @Override
+    public Response invokePUT(UrlBuilder url, String contentType, Map<String, String> headers, Output writer, BindingSession session) {
+        Metrics.roundTrip();
+        return getDelegate(session).invokePUT(url, contentType, headers, writer, session);
+    }
+
+    @Override
+    public Response invokeDELETE(UrlBuilder url, BindingSession session) {
+        Metrics.roundTrip();
+        return getDelegate(session).invokeDELETE(url, session);
+    }
+
+    private HttpInvoker getDelegate(BindingSession session) {
+        HttpInvoker invoker = delegate;
+        if (invoker == null) {
+            synchronized (this) {
+                invoker = delegate;
+                if (invoker == null) {
+                    invoker = createDelegate((String) session.get(DELEGATE_CLASS));
+                    delegate = invoker;
+                }
+            }
+        }
+        return invoker;
+    }
+
+    private static HttpInvoker createDelegate(String className) {
+        if (className == null || className.trim().isEmpty()) {
+            return new DefaultHttpInvoker();
+        }
+        try {
+            return (HttpInvoker) Class.forName(className.trim()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new CmisRuntimeException("HttpInvoker can not be created: "+className, e);
+        }
+    }
+}
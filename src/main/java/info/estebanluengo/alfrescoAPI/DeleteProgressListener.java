@@ -0,0 +1,36 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+/**
+ * Receives the progress of a parallel delete. The method is called from the threads that delete the items,
+ * so implementations must be thread safe and fast.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public interface DeleteProgressListener {
+
+    /**
+     * Called periodically while the items are deleted and once when all of them have been processed
+     *
+     * @param deleted a long with the number of items deleted so far
+     * @param failed a long with the number of items that could not be deleted so far
+     * @param total a long with the number of items to be deleted
+     * @param itemsPerSecond a double with the number of items processed per second since the delete started
+     */
+    void onProgress(long deleted, long failed, long total, double itemsPerSecond);
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a parallel delete: the Ids of the items deleted, the Ids of the items that could not be deleted
+ * with the exception thrown for every one of them and the Ids of the items that were not deleted because the delete
+ * was interrupted.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class DeleteResult {
+
+    private final List<String> deletedIds;
+    private final Map<String, Exception> failures;
+    private final List<String> pendingIds;
+    private final long elapsedMillis;
+
+    DeleteResult(List<String> deletedIds, Map<String, Exception> failures, List<String> pendingIds, long elapsedMillis) {
+        this.deletedIds = Collections.unmodifiableList(deletedIds);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.pendingIds = Collections.unmodifiableList(pendingIds);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the Ids of the items that have been deleted
+     *
+     * @return a List<String> that can not be modified
+     */
+    public List<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Gets the items that could not be deleted
+     *
+     * @return a Map<String, Exception> with the Id of every item and the exception thrown when it was deleted
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the items that were not deleted nor failed when the delete was interrupted. An item that was being deleted
+     * when the delete was interrupted may be deleted in the server
+     *
+     * @return a List<String> that can not be modified. It is empty if the delete has not been interrupted
+     */
+    public List<String> getPendingIds() {
+        return pendingIds;
+    }
+
+    /**
+     * Returns true if all the items have been deleted
+     *
+     * @return a boolean. True if there are no failures and no pending items
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty() && pendingIds.isEmpty();
+    }
+
+    /**
+     * Gets the time spent to list and delete the items
+     *
+     * @return a long with the number of milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the number of items processed per second
+     *
+     * @return a double with the throughput of the delete
+     */
+    public double getItemsPerSecond() {
+        long processed = deletedIds.size() + failures.size();
+        return elapsedMillis == 0 ? processed : processed * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteResult[deleted=" + deletedIds.size() + ", failed=" + failures.size() + ", pending=" + pendingIds.size()
+                + ", elapsedMillis=" + elapsedMillis + "]";
+    }
+}
@@ -0,0 +1,475 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A cache of document content in a local directory. It is used by the getDocumentContent methods of
+ * {@link AlfrescoAPI} when it is enabled with {@link AlfrescoAPI#setContentCache(DiskContentCache)}.
+ * <br>
+ * Every content is saved in a file whose name is built from the object Id and the cmis:changeToken of the document,
+ * so a new version or a new content is never served from an old file and the cache does not have to be invalidated.
+ * The documents without a change token are not cached. The files are read through memory mapped buffers, so a hit
+ * does not copy the content into the heap and the pages are shared by all the readers and kept by the operating system.
+ * Every file is mapped once and the readers receive views of the same mapping, so the number of mappings of the
+ * process is bounded by the number of files of the cache.
+ * <br>
+ * The cache is bounded by the bytes of the files; when the limit is passed the least recently used files are deleted.
+ * A file is written to a temporary file and moved to its name when it is complete, and a mapped buffer is still valid
+ * after its file is deleted, so readers and writers of several threads never see half written or missing content.
+ * The access time of a file is saved as its modification time, so the cache keeps its content and its LRU order
+ * when the process is restarted.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class DiskContentCache {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    //the modification time of a file is updated at most once in this time
+    private static final long TOUCH_INTERVAL_MILLIS = 60 * 1000L;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, CacheFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    //concurrent misses of the same content download it once
+    private final SingleFlight<String, ByteBuffer> downloads = new SingleFlight<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new DiskContentCache with the default limit. Look at {@link #DiskContentCache(Path, long)}
+     *
+     * @param directory a Path to the directory of the cache
+     * @throws IOException if the directory can not be created or read
+     */
+    public DiskContentCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a new DiskContentCache. The directory is created if it does not exist. If it has the files of a previous
+     * cache they are loaded with the LRU order saved, and the files over the limit are deleted
+     *
+     * @param directory a Path to the directory of the cache. It should only be used by one cache
+     * @param maxBytes a long with the max number of bytes of the files
+     * @throws IOException if the directory can not be created or read
+     */
+    public DiskContentCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be greater than 0");
+        }
+        this.directory = directory.toAbsolutePath();
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        load();
+    }
+
+    private void load() throws IOException {
+        List<CacheFile> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    //left by a process that has been stopped while it was writing
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(FILE_SUFFIX)) {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    found.add(new CacheFile(name, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(f -> f.touchedAt));
+        List<CacheFile> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (CacheFile file : found) {
+                evicted.addAll(register(file));
+            }
+        }
+        delete(evicted);
+        logger.debug("content cache loaded from:"+directory+" files:"+found.size()+" bytes:"+getBytes());
+    }
+
+    /**
+     * Gets the content from the cache
+     *
+     * @param objectId a String with the Id of the document
+     * @param changeToken a String with the change token of the document
+     * @return a read only ByteBuffer with the content or null if it is not in the cache
+     * @throws IOException if the file can not be read
+     */
+    public ByteBuffer get(String objectId, String changeToken) throws IOException {
+        String name = getFileName(objectId, changeToken);
+        CacheFile file;
+        synchronized (this) {
+            file = files.get(name);
+        }
+        if (file == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = file.getMapping(directory.resolve(name));
+            touch(file);
+            return buffer.duplicate();
+        } catch (NoSuchFileException e) {
+            //deleted by an eviction after it was found
+            synchronized (this) {
+                remove(name, file);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Saves the content in the cache. The stream is read until the end and closed. A content that does not have the
+     * length given is not saved, so a body truncated by the network is never served from the cache
+     *
+     * @param objectId a String with the Id of the document
+     * @param changeToken a String with the change token of the document
+     * @param content an InputStream with the content
+     * @param length a long with the length of the content, the cmis:contentStreamLength of the document
+     * @return a read only ByteBuffer with the content saved
+     * @throws IOException if the stream can not be read, the file can not be written, the content does not have
+     * length bytes or it is bigger than the cache
+     */
+    public ByteBuffer put(String objectId, String changeToken, InputStream content, long length) throws IOException {
+        String name = getFileName(objectId, changeToken);
+        Path tmp = Files.createTempFile(directory, name, TEMP_SUFFIX);
+        try {
+            try (InputStream in = content; FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ContentTransfer.copy(in, channel);
+            }
+            long size = Files.size(tmp);
+            if (size != length) {
+                throw new IOException("The content of document "+objectId+" has "+size+" bytes instead of "+length);
+            }
+            if (size > getMaxEntryBytes()) {
+                throw new IOException("The content of document "+objectId+" has "+size+" bytes and can not be cached");
+            }
+            //the buffer is mapped before the move, so an eviction of the file can not remove it before it is read
+            ByteBuffer buffer = map(tmp);
+            Files.move(tmp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            CacheFile file = new CacheFile(name, size, System.currentTimeMillis());
+            file.mapping = buffer;
+            List<CacheFile> evicted;
+            synchronized (this) {
+                evicted = register(file);
+            }
+            delete(evicted);
+            return buffer.duplicate();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Gets the content of the document from the cache or downloads it into the cache
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param changeToken a String with the change token of the document
+     * @param length a long with the length of the content
+     * @return a read only ByteBuffer with the content or null if the document can not be cached
+     * @throws IOException if the content can not be downloaded or the file can not be read or written
+     */
+    ByteBuffer getContent(Session session, String docId, String changeToken, long length) throws IOException {
+        if (changeToken == null || length <= 0 || length > getMaxEntryBytes()) {
+            return null;
+        }
+        ByteBuffer buffer = get(docId, changeToken);
+        if (buffer != null) {
+            hits.incrementAndGet();
+            return buffer;
+        }
+        misses.incrementAndGet();
+        try {
+            ByteBuffer downloaded = downloads.execute(getFileName(docId, changeToken), () -> {
+                try {
+                    ContentStream contentStream = ContentTransfer.openContentStream(session, docId, null, null);
+                    if (contentStream == null || contentStream.getStream() == null) {
+                        return null;
+                    }
+                    return put(docId, changeToken, contentStream.getStream(), length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            //the threads that share the download must not share the position of the buffer
+            return downloaded == null ? null : downloaded.duplicate();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Removes all the contents of the document, whatever its change token and the version label of its Id
+     *
+     * @param objectId a String with the Id of the document
+     */
+    public void invalidate(String objectId) {
+        String prefix = hash(AlfrescoAPI.getNodeId(objectId)) + "-";
+        List<CacheFile> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<CacheFile> it = files.values().iterator();
+            while (it.hasNext()) {
+                CacheFile file = it.next();
+                if (file.name.startsWith(prefix)) {
+                    bytes -= file.size;
+                    it.remove();
+                    removed.add(file);
+                }
+            }
+        }
+        delete(removed);
+    }
+
+    /**
+     * Removes all the contents of the cache and deletes their files
+     */
+    public void clear() {
+        List<CacheFile> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(files.values());
+            files.clear();
+            bytes = 0;
+        }
+        delete(removed);
+    }
+
+    /**
+     * Adds the file as the most recently used and removes the least recently used files over the limit
+     *
+     * @return a List<CacheFile> with the files to be deleted
+     */
+    private List<CacheFile> register(CacheFile file) {
+        CacheFile previous = files.put(file.name, file);
+        bytes += file.size;
+        if (previous != null) {
+            bytes -= previous.size;
+            previous.mapping = null;
+        }
+        List<CacheFile> evicted = new ArrayList<>();
+        Iterator<CacheFile> it = files.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            CacheFile eldest = it.next();
+            if (eldest == file) {
+                continue;
+            }
+            bytes -= eldest.size;
+            it.remove();
+            evicted.add(eldest);
+            evictions.incrementAndGet();
+        }
+        return evicted;
+    }
+
+    private void remove(String name, CacheFile file) {
+        if (files.remove(name, file)) {
+            bytes -= file.size;
+            file.mapping = null;
+        }
+    }
+
+    private void delete(List<CacheFile> removed) {
+        for (CacheFile file : removed) {
+            //the memory is unmapped by the garbage collector when the buffers given to the readers are not used
+            file.mapping = null;
+            try {
+                synchronized (this) {
+                    //the same content may have been saved again after it was removed
+                    if (files.containsKey(file.name)) {
+                        continue;
+                    }
+                }
+                Files.deleteIfExists(directory.resolve(file.name));
+            } catch (IOException e) {
+                logger.error("Cached content can not be deleted: "+file.name, e);
+            }
+        }
+    }
+
+    private void touch(CacheFile file) {
+        long now = System.currentTimeMillis();
+        if (now - file.touchedAt < TOUCH_INTERVAL_MILLIS) {
+            return;
+        }
+        file.touchedAt = now;
+        try {
+            Files.setLastModifiedTime(directory.resolve(file.name), FileTime.fromMillis(now));
+        } catch (IOException e) {
+            logger.debug("access time of cached content not saved: "+file.name);
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * The name starts with the hash of the node Id, so all the contents of a document can be found by the name with
+     * an Id with or without the version label
+     */
+    static String getFileName(String objectId, String changeToken) {
+        return hash(AlfrescoAPI.getNodeId(objectId)) + "-" + hash(objectId + '\u0000' + changeToken) + FILE_SUFFIX;
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the max length of a content that can be cached. A buffer can not be mapped over 2GB
+     *
+     * @return a long with the number of bytes
+     */
+    public long getMaxEntryBytes() {
+        return Math.min(maxBytes, Integer.MAX_VALUE);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets the number of contents in the cache
+     *
+     * @return a int with the number of files
+     */
+    public synchronized int size() {
+        return files.size();
+    }
+
+    /**
+     * Gets the number of bytes of the files of the cache
+     *
+     * @return a long with the number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of calls to getDocumentContent that have been served from the cache
+     *
+     * @return a long with the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of calls to getDocumentContent that have downloaded the content into the cache
+     *
+     * @return a long with the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DiskContentCache[directory=%s, files=%d, bytes=%d, hits=%d, misses=%d, evictions=%d]",
+                directory, size(), getBytes(), getHits(), getMisses(), getEvictions());
+    }
+
+    /**
+     * A file of the cache
+     */
+    private static final class CacheFile {
+        final String name;
+        final long size;
+        volatile long touchedAt;
+        //mapped once and shared by all the readers through duplicates. null until it is read or after it is removed
+        volatile ByteBuffer mapping;
+
+        CacheFile(String name, long size, long touchedAt) {
+            this.name = name;
+            this.size = size;
+            this.touchedAt = touchedAt;
+        }
+
+        ByteBuffer getMapping(Path path) throws IOException {
+            ByteBuffer buffer = mapping;
+            if (buffer == null) {
+                synchronized (this) {
+                    buffer = mapping;
+                    if (buffer == null) {
+                        buffer = map(path);
+                        mapping = buffer;
+                    }
+                }
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of an export made by {@link TreeExporter}: the folders and documents written to the archive, the bytes
+ * written and the documents that could not be exported with their exceptions.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class ExportReport {
+
+    private final long folders;
+    private final long documents;
+    private final long contentBytes;
+    private final long archiveBytes;
+    private final Map<String, Exception> failures;
+    private final long elapsedMillis;
+
+    ExportReport(long folders, long documents, long contentBytes, long archiveBytes, Map<String, Exception> failures, long elapsedMillis) {
+        this.folders = folders;
+        this.documents = documents;
+        this.contentBytes = contentBytes;
+        this.archiveBytes = archiveBytes;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getFolders() {
+        return folders;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Gets the number of bytes of content downloaded from the server
+     *
+     * @return a long with the number of bytes
+     */
+    public long getContentBytes() {
+        return contentBytes;
+    }
+
+    /**
+     * Gets the number of bytes written to the output, including the archive headers and the metadata files
+     *
+     * @return a long with the number of bytes
+     */
+    public long getArchiveBytes() {
+        return archiveBytes;
+    }
+
+    /**
+     * Gets the documents that could not be exported
+     *
+     * @return a Map<String, Exception> with the path of every document and the exception thrown when it was downloaded
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the content bytes downloaded per second
+     *
+     * @return a double with the throughput of the export
+     */
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0 ? contentBytes : contentBytes * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportReport[folders=%d, documents=%d, failed=%d, contentBytes=%d, archiveBytes=%d, elapsedMillis=%d, bytes/s=%.0f]",
+                folders, documents, failures.size(), contentBytes, archiveBytes, elapsedMillis, getBytesPerSecond());
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded LRU cache that maps folder paths (and folder names) to folder object Ids. It is used by
+ * {@link AlfrescoAPI#createFolders(Session, org.apache.chemistry.opencmis.client.api.Folder, String)} and
+ * the getFolderByName methods to avoid asking the server for folders that have been resolved before.
+ * <br>
+ * Every entry expires after the time to live given in the constructor. The delete methods of AlfrescoAPI
+ * invalidate the entries of the folders they remove, but folders removed by other clients are only
+ * detected when the entry expires or when the cached Id is not found in the server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class FolderCache {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000L;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new FolderCache with DEFAULT_MAX_ENTRIES entries and DEFAULT_TTL_MILLIS time to live
+     */
+    public FolderCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * Creates a new FolderCache
+     *
+     * @param maxEntries a int with the max number of entries. When the cache is full the least recently used
+     * entry is removed
+     * @param ttlMillis a long with the number of milliseconds that an entry is valid
+     */
+    public FolderCache(final int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than 0");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Builds the key for a folder path in the repository of the session
+     *
+     * @param session a Session object that is connected with the server
+     * @param path a String with the folder path
+     * @return a String to be used as key in the cache
+     */
+    static String pathKey(Session session, String path) {
+        return session.getRepositoryInfo().getId() + ":path:" + path;
+    }
+
+    /**
+     * Builds the key for a folder name in the repository of the session
+     *
+     * @param session a Session object that is connected with the server
+     * @param folderName a String with the folder name
+     * @return a String to be used as key in the cache
+     */
+    static String nameKey(Session session, String folderName) {
+        return session.getRepositoryInfo().getId() + ":name:" + folderName;
+    }
+
+    /**
+     * Gets the folder Id associated to the key
+     *
+     * @param key a String built with pathKey or nameKey
+     * @return a String with the folder Id or null if the key is not in the cache or the entry has expired
+     */
+    public synchronized String get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.objectId;
+    }
+
+    /**
+     * Puts a folder in the cache
+     *
+     * @param key a String built with pathKey or nameKey
+     * @param objectId a String with the folder Id
+     * @param path a String with the folder path. It is used to invalidate the entry when the folder or one
+     * of its ancestors is deleted
+     */
+    public synchronized void put(String key, String objectId, String path) {
+        entries.put(key, new CacheEntry(objectId, path, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Removes the folder with the Id given, whatever the version label of its Id, and all the folders cached under it
+     *
+     * @param objectId a String with the folder Id
+     */
+    public synchronized void invalidateId(String objectId) {
+        String nodeId = AlfrescoAPI.getNodeId(objectId);
+        List<String> paths = new ArrayList<>();
+        Iterator<CacheEntry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            CacheEntry entry = it.next();
+            if (AlfrescoAPI.getNodeId(entry.objectId).equals(nodeId)) {
+                paths.add(entry.path);
+                it.remove();
+            }
+        }
+        for (String path : paths) {
+            invalidateTree(path);
+        }
+    }
+
+    /**
+     * Removes the folder with the path given and all the folders cached under it
+     *
+     * @param path a String with the folder path
+     */
+    public synchronized void invalidateTree(String path) {
+        if (path == null) {
+            return;
+        }
+        String prefix = path.endsWith("/") ? path : path + "/";
+        Iterator<CacheEntry> it = entries.values().iterator();
+        int removed = 0;
+        while (it.hasNext()) {
+            CacheEntry entry = it.next();
+            if (entry.path != null && (entry.path.equals(path) || entry.path.startsWith(prefix))) {
+                it.remove();
+                removed++;
+            }
+        }
+        logger.debug("folder cache invalidated for path:"+path+" entries removed:"+removed);
+    }
+
+    /**
+     * Removes all the entries of the cache
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of entries in the cache
+     *
+     * @return a int with the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Gets the number of lookups that have found a valid entry
+     *
+     * @return a long with the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that have not found a valid entry
+     *
+     * @return a long with the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of entries removed because the cache was full
+     *
+     * @return a long with the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static final class CacheEntry {
+        private final String objectId;
+        private final String path;
+        private final long expiresAt;
+
+        CacheEntry(String objectId, String path, long expiresAt) {
+            this.objectId = objectId;
+            this.path = path;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
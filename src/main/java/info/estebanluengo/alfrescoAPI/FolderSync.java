@@ -0,0 +1,673 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps a local copy of several folders of the server. It is a one-way synchronization: the server is never modified
+ * and the local changes are overwritten.
+ * <br>
+ * The first synchronization of a folder scans the whole tree and downloads every document. The state of the local copy
+ * (the change token of every document and the change log token of the repository) is saved in a manifest file, so the
+ * next synchronizations only read the changes made since then from the change log and download the documents whose
+ * change token is not the one saved. If the repository does not support the change log, or a folder is added, the tree
+ * is scanned again but only the changed documents are downloaded. The change log token is only saved when a
+ * synchronization finishes without failures, so the failed documents are tried again the next time.
+ * <br>
+ * Every document is downloaded into a temporary file next to the target file that is moved over it when the download
+ * is complete, so a reader of the local copy never sees a half written file. The folders are synchronized at the same
+ * time by concurrency threads and the documents are downloaded by downloadWorkers threads.
+ * <br>
+ * Example:
+ * <pre>
+ * FolderSync sync = new FolderSync(session, Paths.get("/mirror/manifest.tsv"));
+ * sync.addFolder("/Sites/legal/documentLibrary", Paths.get("/mirror/legal"));
+ * SyncReport report = sync.sync();
+ * </pre>
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class FolderSync {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final int DEFAULT_DOWNLOAD_WORKERS = 8;
+    public static final String PART_SUFFIX = ".part";
+
+    private static final int CHANGES_BATCH_SIZE = 500;
+    private static final String MANIFEST_HEADER = "# alfrescoAPI folder sync manifest";
+
+    private final Session session;
+    private final Path manifestFile;
+    private final Map<String, Path> folders = new LinkedHashMap<>();
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private int downloadWorkers = DEFAULT_DOWNLOAD_WORKERS;
+
+    /**
+     * Creates a new FolderSync
+     *
+     * @param session a Session object that is connected with the server
+     * @param manifestFile a Path to the file where the state of the local copy is saved between synchronizations
+     */
+    public FolderSync(Session session, Path manifestFile) {
+        this.session = session;
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Adds a folder of the server to be copied into a local directory. The directory is created if it does not exist
+     *
+     * @param remotePath a String with the path of the folder in the server. Example: /Sites/legal/documentLibrary
+     * @param localDir a Path to the local directory
+     */
+    public synchronized void addFolder(String remotePath, Path localDir) {
+        String path = remotePath.length() > 1 && remotePath.endsWith("/") ? remotePath.substring(0, remotePath.length() - 1) : remotePath;
+        folders.put(path, localDir.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Synchronizes all the folders added. The manifest file is read at the beginning and written at the end
+     *
+     * @return a SyncReport with the documents downloaded, the bytes avoided and the failures
+     * @throws IOException if the manifest file can not be read or written or the thread is interrupted
+     */
+    public synchronized SyncReport sync() throws IOException {
+        logger.debug("sync called for folders:"+folders.keySet());
+        long start = System.currentTimeMillis();
+        Manifest manifest = Manifest.read(manifestFile);
+        boolean changeLog = ChangeLogPoller.isSupported(session);
+        //read before anything else, so the changes made during the synchronization are read again the next time
+        String latestToken = changeLog ? getLatestChangeLogToken() : null;
+
+        Map<String, RootState> roots = new LinkedHashMap<>();
+        Set<String> fullScans = new LinkedHashSet<>();
+        for (Map.Entry<String, Path> folder : folders.entrySet()) {
+            RootState state = manifest.roots.get(folder.getKey());
+            if (state == null || !state.localDir.equals(folder.getValue())) {
+                state = new RootState(folder.getKey(), folder.getValue());
+                fullScans.add(folder.getKey());
+            }
+            roots.put(folder.getKey(), state);
+        }
+        if (!changeLog || manifest.token == null) {
+            fullScans.addAll(roots.keySet());
+        }
+
+        ExecutorService rootPool = Executors.newFixedThreadPool(concurrency);
+        ExecutorService downloadPool = Executors.newFixedThreadPool(downloadWorkers);
+        Run run = new Run(downloadPool);
+        try {
+            if (fullScans.size() < roots.size()) {
+                try {
+                    Collection<ChangeEvent> changes = readChanges(manifest.token);
+                    run.changes.addAndGet(changes.size());
+                    applyChanges(run, changes, roots, fullScans);
+                } catch (CmisBaseException e) {
+                    //the token may be older than the change log kept by the repository
+                    logger.error("Error reading the change log from token:"+manifest.token+". The folders are scanned again", e);
+                    fullScans.addAll(roots.keySet());
+                }
+            }
+            List<Future<?>> scans = new ArrayList<>();
+            for (String remotePath : fullScans) {
+                RootState state = roots.get(remotePath);
+                scans.add(rootPool.submit(() -> {
+                    scan(run, state);
+                    return null;
+                }));
+            }
+            await(scans);
+            run.awaitDownloads();
+        } finally {
+            rootPool.shutdownNow();
+            downloadPool.shutdownNow();
+        }
+
+        manifest.roots.clear();
+        manifest.roots.putAll(roots);
+        if (run.failures.isEmpty()) {
+            manifest.token = latestToken;
+        }
+        manifest.write(manifestFile);
+
+        long documents = 0;
+        long totalBytes = 0;
+        for (RootState state : roots.values()) {
+            documents += state.docs.size();
+            for (Entry entry : state.docs.values()) {
+                totalBytes += entry.length;
+            }
+        }
+        SyncReport report = new SyncReport(fullScans.size(), run.changes.get(), documents, run.downloaded.get(),
+                run.downloadedBytes.get(), Math.max(0, totalBytes - run.downloadedBytes.get()), run.moved.get(),
+                run.deleted.get(), new LinkedHashMap<>(run.failures), System.currentTimeMillis() - start);
+        logger.debug("sync finished. "+report);
+        return report;
+    }
+
+    private Collection<ChangeEvent> readChanges(String fromToken) {
+        //only the last change of every object matters
+        Map<String, ChangeEvent> changes = new LinkedHashMap<>();
+        String token = fromToken;
+        boolean hasMoreItems = true;
+        while (hasMoreItems) {
+            ChangeEvents batch = session.getContentChanges(token, false, CHANGES_BATCH_SIZE);
+            for (ChangeEvent event : batch.getChangeEvents()) {
+                changes.remove(event.getObjectId());
+                changes.put(event.getObjectId(), event);
+            }
+            String next = batch.getLatestChangeLogToken();
+            hasMoreItems = Boolean.TRUE.equals(batch.getHasMoreItems()) && !batch.getChangeEvents().isEmpty()
+                    && next != null && !next.equals(token);
+            token = next;
+        }
+        logger.debug("changes read from token:"+fromToken+" changes:"+changes.size());
+        return changes.values();
+    }
+
+    /**
+     * Applies the changes to the folders that are not scanned. A change of a folder of the tree, or of a folder moved
+     * into the tree, makes the whole tree to be scanned
+     */
+    private void applyChanges(Run run, Collection<ChangeEvent> changes, Map<String, RootState> roots, Set<String> fullScans) {
+        OperationContext context = ContextProfile.LISTING.toOperationContext(session);
+        Map<String, CmisObject> objects = new LinkedHashMap<>();
+        for (ChangeEvent event : changes) {
+            CmisObject object = event.getChangeType() == ChangeType.DELETED ? null : getObject(event.getObjectId(), context);
+            objects.put(event.getObjectId(), object);
+            for (RootState state : roots.values()) {
+                if (fullScans.contains(state.remotePath)) {
+                    continue;
+                }
+                if (state.folders.containsKey(event.getObjectId())
+                        || (object instanceof Folder && isInside(((Folder) object).getPath(), state.remotePath))) {
+                    fullScans.add(state.remotePath);
+                }
+            }
+        }
+        for (Map.Entry<String, CmisObject> change : objects.entrySet()) {
+            CmisObject object = change.getValue();
+            if (object instanceof Folder) {
+                continue;
+            }
+            for (RootState state : roots.values()) {
+                if (fullScans.contains(state.remotePath)) {
+                    continue;
+                }
+                if (object == null) {
+                    for (Entry entry : state.findByObjectId(change.getKey())) {
+                        run.delete(state, entry);
+                    }
+                } else if (object instanceof Document) {
+                    Document doc = (Document) object;
+                    if (Boolean.FALSE.equals(doc.isLatestVersion())) {
+                        continue;
+                    }
+                    String relativePath = getRelativePath(doc, state.remotePath, context);
+                    Entry entry = state.docs.get(getKey(doc));
+                    if (relativePath != null) {
+                        run.sync(state, doc, relativePath);
+                    } else if (entry != null) {
+                        //moved out of the tree
+                        run.delete(state, entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private CmisObject getObject(String objectId, OperationContext context) {
+        try {
+            return session.getObject(objectId, context);
+        } catch (CmisObjectNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static String getRelativePath(Document doc, String remotePath, OperationContext context) {
+        for (Folder parent : doc.getParents(context)) {
+            String path = parent.getPath();
+            if (path.equals(remotePath)) {
+                return doc.getName();
+            }
+            if (isInside(path, remotePath)) {
+                String prefix = remotePath.equals("/") ? "/" : remotePath + "/";
+                return path.substring(prefix.length()) + "/" + doc.getName();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isInside(String path, String remotePath) {
+        return path.equals(remotePath) || path.startsWith(remotePath.equals("/") ? "/" : remotePath + "/");
+    }
+
+    /**
+     * Walks the whole tree of the folder. The documents not found in the tree are deleted from the local copy
+     */
+    private void scan(Run run, RootState state) throws IOException {
+        logger.debug("scanning folder:"+state.remotePath);
+        OperationContext context = ContextProfile.LISTING.toOperationContext(session);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        Map<String, String> previousFolders = new LinkedHashMap<>(state.folders);
+        state.folders.clear();
+        Folder root;
+        try {
+            root = (Folder) session.getObjectByPath(state.remotePath, context);
+        } catch (CmisBaseException | ClassCastException e) {
+            run.failures.put(state.remotePath, e);
+            return;
+        }
+        Files.createDirectories(state.localDir);
+        walk(run, state, root, "", context, seen);
+        for (Entry entry : new ArrayList<>(state.docs.values())) {
+            if (!seen.contains(entry.key)) {
+                run.delete(state, entry);
+            }
+        }
+        //the folders removed in the server are removed locally when they are empty
+        List<String> removed = new ArrayList<>();
+        for (String relativePath : previousFolders.values()) {
+            if (!relativePath.isEmpty() && !state.folders.containsValue(relativePath)) {
+                removed.add(relativePath);
+            }
+        }
+        removed.sort(Comparator.comparingInt(String::length).reversed());
+        for (String relativePath : removed) {
+            try {
+                Files.deleteIfExists(state.resolve(relativePath));
+            } catch (DirectoryNotEmptyException e) {
+                logger.debug("local folder not removed because it is not empty:"+relativePath);
+            }
+        }
+    }
+
+    private void walk(Run run, RootState state, Folder folder, String relativePath, OperationContext context, Set<String> seen)
+            throws IOException {
+        state.folders.put(folder.getId(), relativePath);
+        Files.createDirectories(state.resolve(relativePath));
+        for (CmisObject child : folder.getChildren(context)) {
+            String childPath = relativePath.isEmpty() ? child.getName() : relativePath + "/" + child.getName();
+            if (child instanceof Folder) {
+                walk(run, state, (Folder) child, childPath, context, seen);
+            } else if (child instanceof Document) {
+                seen.add(getKey((Document) child));
+                run.sync(state, (Document) child, childPath);
+            }
+        }
+    }
+
+    private String getLatestChangeLogToken() {
+        //the repository info of the session is cached, so it is read again from the server
+        return session.getBinding().getRepositoryService().getRepositoryInfo(session.getRepositoryInfo().getId(), null)
+                .getLatestChangeLogToken();
+    }
+
+    /**
+     * The versions of a document share the entry, so a new version replaces the file of the previous one
+     */
+    private static String getKey(Document doc) {
+        return doc.getVersionSeriesId() != null ? doc.getVersionSeriesId() : doc.getId();
+    }
+
+    private static String getVersionToken(Document doc) {
+        if (doc.getChangeToken() != null) {
+            return doc.getChangeToken();
+        }
+        return doc.getLastModificationDate() == null ? null : String.valueOf(doc.getLastModificationDate().getTimeInMillis());
+    }
+
+    private static void await(List<Future<?>> futures) throws IOException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("The synchronization has been interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the number of folders synchronized at the same time
+     *
+     * @param concurrency a int with the number of threads
+     */
+    public synchronized void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be greater than 0");
+        }
+        this.concurrency = concurrency;
+    }
+
+    public int getDownloadWorkers() {
+        return downloadWorkers;
+    }
+
+    /**
+     * Sets the number of documents downloaded at the same time by all the folders
+     *
+     * @param downloadWorkers a int with the number of threads
+     */
+    public synchronized void setDownloadWorkers(int downloadWorkers) {
+        if (downloadWorkers <= 0) {
+            throw new IllegalArgumentException("downloadWorkers must be greater than 0");
+        }
+        this.downloadWorkers = downloadWorkers;
+    }
+
+    public Path getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * The state of one call to sync
+     */
+    private final class Run {
+        final ExecutorService downloadPool;
+        final Queue<Future<?>> downloads = new ConcurrentLinkedQueue<>();
+        final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        final AtomicLong changes = new AtomicLong();
+        final AtomicLong downloaded = new AtomicLong();
+        final AtomicLong downloadedBytes = new AtomicLong();
+        final AtomicLong moved = new AtomicLong();
+        final AtomicLong deleted = new AtomicLong();
+
+        Run(ExecutorService downloadPool) {
+            this.downloadPool = downloadPool;
+        }
+
+        /**
+         * Downloads the document if its change token is not the one of the local copy. If the document has been moved
+         * to another folder without changing its change token the local file is moved. A rename changes the change
+         * token, so a renamed document is downloaded again
+         */
+        void sync(RootState state, Document doc, String relativePath) {
+            String key = getKey(doc);
+            String changeToken = getVersionToken(doc);
+            long length = doc.getContentStreamLength() < 0 ? 0 : doc.getContentStreamLength();
+            Entry previous = state.docs.get(key);
+            if (previous != null && changeToken != null && changeToken.equals(previous.changeToken)
+                    && doc.getId().equals(previous.objectId)) {
+                try {
+                    Path current = state.resolve(previous.path);
+                    if (Files.exists(current)) {
+                        if (!previous.path.equals(relativePath)) {
+                            Path target = state.resolve(relativePath);
+                            Files.createDirectories(target.getParent());
+                            Files.move(current, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                            state.docs.put(key, new Entry(key, doc.getId(), changeToken, length, relativePath));
+                            moved.incrementAndGet();
+                        }
+                        return;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failures.put(state.remotePath + "/" + relativePath, e);
+                    return;
+                }
+            }
+            downloads.add(downloadPool.submit(() -> {
+                try {
+                    Path target = state.resolve(relativePath);
+                    long written = download(doc.getId(), target, doc.getContentStreamLength());
+                    state.docs.put(key, new Entry(key, doc.getId(), changeToken, written, relativePath));
+                    if (previous != null && !previous.path.equals(relativePath)) {
+                        Files.deleteIfExists(state.resolve(previous.path));
+                    }
+                    downloaded.incrementAndGet();
+                    downloadedBytes.addAndGet(written);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Error downloading document:"+doc.getId()+" into:"+relativePath, e);
+                    failures.put(state.remotePath + "/" + relativePath, e);
+                }
+            }));
+        }
+
+        void delete(RootState state, Entry entry) {
+            try {
+                Files.deleteIfExists(state.resolve(entry.path));
+                state.docs.remove(entry.key, entry);
+                deleted.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failures.put(state.remotePath + "/" + entry.path, e);
+            }
+        }
+
+        private long download(String docId, Path target, long expectedLength) throws IOException {
+            Files.createDirectories(target.getParent());
+            Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+            try {
+                long written = 0;
+                if (expectedLength == 0) {
+                    Files.write(part, new byte[0]);
+                } else {
+                    written = AlfrescoAPI.getDocumentContent(session, docId, part);
+                }
+                if (expectedLength >= 0 && written != expectedLength) {
+                    throw new IOException("The content of document "+docId+" has "+written+" bytes instead of "+expectedLength);
+                }
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return written;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(part);
+                throw e;
+            }
+        }
+
+        void awaitDownloads() throws IOException {
+            List<Future<?>> pending = new ArrayList<>(downloads);
+            await(pending);
+        }
+    }
+
+    /**
+     * The local copy of a document
+     */
+    private static final class Entry {
+        final String key;
+        final String objectId;
+        final String changeToken;
+        final long length;
+        //relative to the local directory with / as separator
+        final String path;
+
+        Entry(String key, String objectId, String changeToken, long length, String path) {
+            this.key = key;
+            this.objectId = objectId;
+            this.changeToken = changeToken;
+            this.length = length;
+            this.path = path;
+        }
+    }
+
+    /**
+     * The local copy of a folder added to the FolderSync
+     */
+    private static final class RootState {
+        final String remotePath;
+        final Path localDir;
+        final Map<String, Entry> docs = new ConcurrentHashMap<>();
+        //the ids of the folders of the tree with their relative paths
+        final Map<String, String> folders = new ConcurrentHashMap<>();
+
+        RootState(String remotePath, Path localDir) {
+            this.remotePath = remotePath;
+            this.localDir = localDir;
+        }
+
+        Path resolve(String relativePath) throws IOException {
+            Path file = localDir.resolve(relativePath).normalize();
+            if (!file.startsWith(localDir)) {
+                throw new IOException("The path is outside the local directory: "+relativePath);
+            }
+            return file;
+        }
+
+        List<Entry> findByObjectId(String objectId) {
+            //Alfresco adds the version label to the Id of a document, and the change log may not have it
+            String nodeId = AlfrescoAPI.getNodeId(objectId);
+            List<Entry> found = new ArrayList<>();
+            for (Entry entry : docs.values()) {
+                if (entry.objectId.equals(objectId) || entry.key.equals(objectId) || AlfrescoAPI.getNodeId(entry.objectId).equals(nodeId)) {
+                    found.add(entry);
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * The file with the state of the local copy. It is a text file with a line for the change log token, a line for
+     * every folder added and a line for every folder and document of its tree. The fields are separated by tabs and
+     * encoded as URLs
+     */
+    private static final class Manifest {
+        String token;
+        final Map<String, RootState> roots = new LinkedHashMap<>();
+
+        static Manifest read(Path file) throws IOException {
+            Manifest manifest = new Manifest();
+            if (!Files.exists(file)) {
+                return manifest;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                RootState state = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split("\t", -1);
+                    switch (fields[0]) {
+                        case "token":
+                            manifest.token = emptyToNull(decode(fields[1]));
+                            break;
+                        case "root":
+                            state = new RootState(decode(fields[1]), Paths.get(decode(fields[2])));
+                            manifest.roots.put(state.remotePath, state);
+                            break;
+                        case "folder":
+                            state.folders.put(decode(fields[1]), decode(fields[2]));
+                            break;
+                        case "doc":
+                            Entry entry = new Entry(decode(fields[1]), decode(fields[2]), emptyToNull(decode(fields[3])),
+                                    Long.parseLong(fields[4]), decode(fields[5]));
+                            state.docs.put(entry.key, entry);
+                            break;
+                        default:
+                            throw new IOException("Unknown line in the manifest "+file+": "+line);
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException | NullPointerException | NumberFormatException e) {
+                throw new IOException("The manifest "+file+" is not valid", e);
+            }
+            return manifest;
+        }
+
+        void write(Path file) throws IOException {
+            //a crash while writing never leaves a half written manifest
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(MANIFEST_HEADER);
+                writer.newLine();
+                if (token != null) {
+                    writer.write("token\t" + encode(token));
+                    writer.newLine();
+                }
+                for (RootState state : roots.values()) {
+                    writer.write("root\t" + encode(state.remotePath) + "\t" + encode(state.localDir.toString()));
+                    writer.newLine();
+                    for (Map.Entry<String, String> folder : state.folders.entrySet()) {
+                        writer.write("folder\t" + encode(folder.getKey()) + "\t" + encode(folder.getValue()));
+                        writer.newLine();
+                    }
+                    for (Entry entry : state.docs.values()) {
+                        writer.write("doc\t" + encode(entry.key) + "\t" + encode(entry.objectId) + "\t" + encode(entry.changeToken)
+                                + "\t" + entry.length + "\t" + encode(entry.path));
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static String encode(String value) {
+            return value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+
+        private static String decode(String value) {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a bulk import made by {@link BulkImporter}: the number of documents uploaded and skipped, the files
+ * that could not be imported with their exceptions and the metrics of every stage of the pipeline.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class ImportReport {
+
+    private final long uploaded;
+    private final long skipped;
+    private final Map<Path, Exception> failures;
+    private final long elapsedMillis;
+    private final List<StageMetrics> stages;
+
+    ImportReport(long uploaded, long skipped, Map<Path, Exception> failures, long elapsedMillis, StageMetrics... stages) {
+        this.uploaded = uploaded;
+        this.skipped = skipped;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsedMillis = elapsedMillis;
+        this.stages = Collections.unmodifiableList(Arrays.asList(stages));
+    }
+
+    /**
+     * Gets the number of documents created in the server
+     *
+     * @return a long with the number of documents
+     */
+    public long getUploaded() {
+        return uploaded;
+    }
+
+    /**
+     * Gets the number of files that were not uploaded because a document with the same name already existed
+     *
+     * @return a long with the number of files skipped
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the files and directories that could not be imported
+     *
+     * @return a Map<Path, Exception> with the path of every file and the exception thrown when it was imported
+     */
+    public Map<Path, Exception> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the metrics of the stages in the order of the pipeline: walk, folders and upload
+     *
+     * @return a List<StageMetrics> that can not be modified
+     */
+    public List<StageMetrics> getStages() {
+        return stages;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("ImportReport[uploaded=").append(uploaded).append(", skipped=").append(skipped)
+                .append(", failed=").append(failures.size()).append(", elapsedMillis=").append(elapsedMillis).append("]");
+        for (StageMetrics stage : stages) {
+            sb.append("\n  ").append(stage);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Calls, errors, latencies and HTTP round trips of every operation of {@link AlfrescoAPI}. The metrics are disabled
+ * by default, enable them with {@link #setEnabled(boolean)} or with the system property alfrescoAPI.metrics=true.
+ * While they are disabled an operation only reads a volatile field.
+ * <br>
+ * Only the outermost call of every thread is recorded. When an operation calls another one, for example
+ * getDocumentContent calls getDocument, the inner call is part of the outer one: it is not counted as a call of its
+ * own operation and its time and requests are counted only in the outer operation. The classes that use AlfrescoAPI
+ * from their own threads, like {@link FolderSync} or {@link TreeExporter}, are recorded as calls of the operations
+ * they use, in the same way as the calls of the application.
+ * <br>
+ * The HTTP round trips are counted by {@link CountingHttpInvoker}, which is used by the sessions created with
+ * {@link AlfrescoAPI#createSession(String, String, String)}. A request is added to the operation in progress in the
+ * thread that makes it.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public final class Metrics {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final String MBEAN_NAME = "info.estebanluengo.alfrescoAPI:type=Metrics";
+
+    private static volatile boolean enabled = Boolean.getBoolean("alfrescoAPI.metrics");
+    private static final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Operation> current = new ThreadLocal<>();
+
+    //returned when the metrics are disabled or the call is nested in another operation
+    private static final Operation DISABLED = new Operation(null);
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the metrics. The values recorded are kept when the metrics are disabled
+     *
+     * @param enable a boolean. True enables the metrics
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Gets the metrics of all the operations that have been called at least once
+     *
+     * @return a Map<String, OperationSnapshot> sorted by the name of the operation
+     */
+    public static Map<String, OperationSnapshot> snapshot() {
+        Map<String, OperationSnapshot> snapshot = new TreeMap<>();
+        for (OperationStats stats : operations.values()) {
+            snapshot.put(stats.name, stats.snapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the metrics of one operation
+     *
+     * @param name a String with the name of the AlfrescoAPI method
+     * @return an OperationSnapshot or null if the operation has not been called
+     */
+    public static OperationSnapshot snapshot(String name) {
+        OperationStats stats = operations.get(name);
+        return stats == null ? null : stats.snapshot();
+    }
+
+    /**
+     * Removes all the values recorded
+     */
+    public static void reset() {
+        operations.clear();
+    }
+
+    /**
+     * Publishes the metrics over JMX in the platform MBeanServer with the name {@link #MBEAN_NAME}
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException e) {
+            logger.error("Metrics MBean can not be registered", e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBeanServer
+     */
+    public static void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.error("Metrics MBean can not be unregistered", e);
+        }
+    }
+
+    /**
+     * Executes the call of an operation and records it
+     *
+     * @param name a String with the name of the operation
+     * @param call a Call with the body of the operation
+     * @return the result of the call
+     * @throws E the exception thrown by the call
+     */
+    static <T, E extends Exception> T measure(String name, Call<T, E> call) throws E {
+        Operation op = begin(name);
+        try {
+            return call.call();
+        } catch (Throwable e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.end();
+        }
+    }
+
+    /**
+     * Executes the call of an operation without result and records it
+     *
+     * @param name a String with the name of the operation
+     * @param call a VoidCall with the body of the operation
+     * @throws E the exception thrown by the call
+     */
+    static <E extends Exception> void run(String name, VoidCall<E> call) throws E {
+        Operation op = begin(name);
+        try {
+            call.call();
+        } catch (Throwable e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.end();
+        }
+    }
+
+    /**
+     * Starts measuring a call. Call {@link Operation#end()} in a finally block and {@link Operation#failed(Throwable)}
+     * when the call throws an exception
+     *
+     * @param name a String with the name of the operation
+     * @return an Operation that measures the call
+     */
+    private static Operation begin(String name) {
+        if (!enabled || current.get() != null) {
+            //a call made by another operation is part of that operation
+            return DISABLED;
+        }
+        Operation op = new Operation(getStats(name));
+        current.set(op);
+        return op;
+    }
+
+    /**
+     * Adds a HTTP request to the operation in progress in this thread
+     */
+    static void roundTrip() {
+        Operation op = current.get();
+        if (op != null) {
+            op.roundTrips++;
+        }
+    }
+
+    private static OperationStats getStats(String name) {
+        OperationStats stats = operations.get(name);
+        if (stats == null) {
+            OperationStats newStats = new OperationStats(name);
+            stats = operations.putIfAbsent(name, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * The body of an operation
+     */
+    @FunctionalInterface
+    interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * The body of an operation without result
+     */
+    @FunctionalInterface
+    interface VoidCall<E extends Exception> {
+        void call() throws E;
+    }
+
+    /**
+     * One call to an operation
+     */
+    private static final class Operation {
+        private final OperationStats stats;
+        private final long start;
+        private long roundTrips;
+        private Throwable error;
+
+        private Operation(OperationStats stats) {
+            this.stats = stats;
+            this.start = stats == null ? 0 : System.nanoTime();
+        }
+
+        void failed(Throwable e) {
+            if (stats != null) {
+                error = e;
+            }
+        }
+
+        void end() {
+            if (stats == null) {
+                return;
+            }
+            stats.record(System.nanoTime() - start, roundTrips, error);
+            current.remove();
+        }
+    }
+
+    private static final class OperationStats {
+        final String name;
+        final LongAdder roundTrips = new LongAdder();
+        final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+        final LatencyHistogram latencies = new LatencyHistogram();
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, long requests, Throwable error) {
+            latencies.record(nanos);
+            roundTrips.add(requests);
+            if (error != null) {
+                errors.computeIfAbsent(error.getClass().getName(), k -> new LongAdder()).increment();
+            }
+        }
+
+        OperationSnapshot snapshot() {
+            long calls = latencies.getCount();
+            Map<String, Long> errorCounts = new HashMap<>();
+            for (Map.Entry<String, LongAdder> entry : errors.entrySet()) {
+                errorCounts.put(entry.getKey(), entry.getValue().sum());
+            }
+            return new OperationSnapshot(name, calls, errorCounts, roundTrips.sum(),
+                    calls == 0 ? 0 : latencies.getSum() / calls / 1000, latencies.getValueAtQuantile(0.5) / 1000,
+                    latencies.getValueAtQuantile(0.99) / 1000, latencies.getValueAtQuantile(0.999) / 1000,
+                    latencies.getMax() / 1000);
+        }
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public List<OperationSnapshot> getOperations() {
+            return new ArrayList<>(Metrics.snapshot().values());
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
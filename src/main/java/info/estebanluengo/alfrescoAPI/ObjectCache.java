@@ -0,0 +1,375 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded LRU cache of Document and Folder objects that sits on top of the cache of the Session. It is used by
+ * {@link AlfrescoAPI#getDocument(Session, String, ContextProfile)} and by getFolderByName when the cache is enabled
+ * with {@link AlfrescoAPI#setObjectCache(ObjectCache)} and the profile of the call has the cache enabled.
+ * <br>
+ * The cache is bounded by the number of entries and by the estimated bytes of the objects; when one of the limits is
+ * passed the least recently used entries are removed. An entry is returned without asking the server during
+ * revalidateAfterMillis after it has been loaded or checked. After that time the cache asks the server only for the
+ * cmis:changeToken of the object and loads it again if the token has changed. An object without a change token, which
+ * is common in Alfresco 4.x, is loaded again without asking for the token, so it costs a single request. Every
+ * entry is removed after the time to live, whatever its change token.
+ * <br>
+ * The objects are cached for every Session and ContextProfile, so the allowable actions of a user are never returned
+ * to another user. The threads that hit the same entry receive the same CmisObject instance.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class ObjectCache {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000L;
+    public static final long DEFAULT_REVALIDATE_AFTER_MILLIS = 1000L;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final long revalidateAfterMillis;
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidatedHits = new AtomicLong();
+    private final AtomicLong staleEntries = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Creates a new ObjectCache with the default limits
+     */
+    public ObjectCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS, DEFAULT_REVALIDATE_AFTER_MILLIS);
+    }
+
+    /**
+     * Creates a new ObjectCache
+     *
+     * @param maxEntries a int with the max number of objects
+     * @param maxBytes a long with the max number of bytes of the objects, as estimated by the cache
+     * @param ttlMillis a long with the number of milliseconds that an object is kept in the cache
+     * @param revalidateAfterMillis a long with the number of milliseconds that an object is returned without
+     * checking its change token. 0 checks the change token every time the object is returned
+     */
+    public ObjectCache(int maxEntries, long maxBytes, long ttlMillis, long revalidateAfterMillis) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxBytes must be greater than 0");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.revalidateAfterMillis = revalidateAfterMillis;
+    }
+
+    /**
+     * Gets the object from the cache or from the server. A cached object that has not been checked in the last
+     * revalidateAfterMillis is only returned if its change token has not changed in the server.
+     *
+     * @param session a Session object that is connected with the server
+     * @param objectId a String with the Id of the object
+     * @param profile a ContextProfile with the data to be retrieved
+     * @return a CmisObject
+     * @throws CmisObjectNotFoundException if the object does not exist in the server
+     */
+    public CmisObject getObject(Session session, String objectId, ContextProfile profile) throws CmisObjectNotFoundException {
+        CacheKey key = new CacheKey(session.getBinding().getSessionId(), objectId, profile);
+        long now = System.currentTimeMillis();
+        CacheEntry entry = getEntry(key, now);
+        if (entry != null) {
+            if (now - entry.validatedAt < revalidateAfterMillis) {
+                hits.incrementAndGet();
+                return entry.object;
+            }
+            //without a change token the object can not be checked, so it is loaded again without asking for the token
+            String changeToken = entry.changeToken == null ? null : getChangeToken(session, objectId);
+            if (changeToken != null && changeToken.equals(entry.changeToken)) {
+                entry.validatedAt = now;
+                revalidatedHits.incrementAndGet();
+                return entry.object;
+            }
+            logger.debug("object "+objectId+" has changed in the server");
+            staleEntries.incrementAndGet();
+            remove(key, entry);
+        } else {
+            misses.incrementAndGet();
+        }
+        CmisObject object = session.getObject(objectId, profile.withCache(false).toOperationContext(session));
+        put(key, new CacheEntry(object, estimateSize(object), now + ttlMillis, now));
+        return object;
+    }
+
+    /**
+     * Removes the object with the Id given for all the sessions and profiles, whatever the version label of its Id
+     *
+     * @param objectId a String with the Id of the object
+     */
+    public synchronized void invalidate(String objectId) {
+        String nodeId = AlfrescoAPI.getNodeId(objectId);
+        Iterator<Map.Entry<CacheKey, CacheEntry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<CacheKey, CacheEntry> entry = it.next();
+            if (AlfrescoAPI.getNodeId(entry.getKey().objectId).equals(nodeId)) {
+                bytes -= entry.getValue().size;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all the objects of the cache
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private synchronized CacheEntry getEntry(CacheKey key, long now) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.expiresAt < now) {
+            expirations.incrementAndGet();
+            remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(CacheKey key, CacheEntry entry) {
+        CacheEntry previous = entries.put(key, entry);
+        bytes += entry.size;
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        Iterator<CacheEntry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            CacheEntry eldest = it.next();
+            bytes -= eldest.size;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private synchronized void remove(CacheKey key, CacheEntry entry) {
+        if (entries.remove(key, entry)) {
+            bytes -= entry.size;
+        }
+    }
+
+    /**
+     * Asks the server only for the change token of the object
+     *
+     * @return a String with the change token or null if the object does not have it or does not exist
+     */
+    private static String getChangeToken(Session session, String objectId) {
+        try {
+            Properties properties = session.getBinding().getObjectService().getProperties(session.getRepositoryInfo().getId(),
+                    objectId, PropertyIds.CHANGE_TOKEN, null);
+            PropertyData<?> changeToken = properties == null ? null : properties.getProperties().get(PropertyIds.CHANGE_TOKEN);
+            return changeToken == null ? null : (String) changeToken.getFirstValue();
+        } catch (CmisObjectNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Estimates the bytes of heap used by the object, counting its properties and allowable actions
+     *
+     * @param object a CmisObject
+     * @return a long with the estimated number of bytes
+     */
+    static long estimateSize(CmisObject object) {
+        long size = 256;
+        for (Property<?> property : object.getProperties()) {
+            size += 64 + 2L * property.getId().length();
+            for (Object value : property.getValues()) {
+                size += value instanceof String ? 40 + 2L * ((String) value).length() : 32;
+            }
+        }
+        if (object.getAllowableActions() != null) {
+            size += 16L * object.getAllowableActions().getAllowableActions().size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of objects in the cache
+     *
+     * @return a int with the number of objects
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the estimated number of bytes of the objects in the cache
+     *
+     * @return a long with the number of bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public long getRevalidateAfterMillis() {
+        return revalidateAfterMillis;
+    }
+
+    /**
+     * Gets the number of lookups that have returned an object without asking the server
+     *
+     * @return a long with the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that have returned an object after checking its change token
+     *
+     * @return a long with the number of hits revalidated
+     */
+    public long getRevalidatedHits() {
+        return revalidatedHits.get();
+    }
+
+    /**
+     * Gets the number of lookups that have found an object whose change token has changed in the server
+     *
+     * @return a long with the number of stale entries
+     */
+    public long getStaleEntries() {
+        return staleEntries.get();
+    }
+
+    /**
+     * Gets the number of lookups that have not found the object in the cache
+     *
+     * @return a long with the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of objects removed because the cache was full
+     *
+     * @return a long with the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of objects removed because their time to live was over
+     *
+     * @return a long with the number of expirations
+     */
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    /**
+     * Gets the fraction of lookups that have returned a cached object, with or without checking its change token
+     *
+     * @return a double between 0 and 1
+     */
+    public double getHitRatio() {
+        long served = hits.get() + revalidatedHits.get();
+        long total = served + staleEntries.get() + misses.get();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ObjectCache[size=%d, bytes=%d, hitRatio=%.2f, hits=%d, revalidatedHits=%d, stale=%d, misses=%d, evictions=%d, expirations=%d]",
+                size(), getBytes(), getHitRatio(), getHits(), getRevalidatedHits(), getStaleEntries(), getMisses(),
+                getEvictions(), getExpirations());
+    }
+
+    private static final class CacheKey {
+        private final String sessionId;
+        private final String objectId;
+        private final ContextProfile profile;
+
+        CacheKey(String sessionId, String objectId, ContextProfile profile) {
+            this.sessionId = sessionId;
+            this.objectId = objectId;
+            this.profile = profile;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return sessionId.equals(other.sessionId) && objectId.equals(other.objectId) && profile.equals(other.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sessionId, objectId, profile);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final CmisObject object;
+        private final String changeToken;
+        private final long size;
+        private final long expiresAt;
+        private volatile long validatedAt;
+
+        CacheEntry(CmisObject object, long size, long expiresAt, long validatedAt) {
+            this.object = object;
+            this.changeToken = object.getChangeToken();
+            this.size = size;
+            this.expiresAt = expiresAt;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An off-heap cache of the content of small documents, up to {@link #MAX_ENTRY_BYTES}. It is the first tier used by
+ * the getDocumentContent methods of {@link AlfrescoAPI} when it is enabled with
+ * {@link AlfrescoAPI#setHotContentCache(OffHeapContentCache)}, before the {@link DiskContentCache}.
+ * <br>
+ * The content is kept in direct buffers of {@link #SLAB_BYTES} that are allocated when they are needed up to the
+ * capacity of the cache and never released. Every slab is split in chunks of the same size, a power of two between
+ * 1KB and 256KB, and a content is saved in a chunk of the smallest size that fits it. The slabs are given to the sizes
+ * as the contents arrive and are not moved between sizes, so a size that has not received any slab when the capacity
+ * is reached is not cached.
+ * <br>
+ * When a size has no free chunk an entry of that size is evicted with the CLOCK algorithm, an approximation of LRU
+ * where a hit only sets a flag, so the lookups do not take any lock. The entries are keyed by the object Id and the
+ * cmis:changeToken of the document, so a changed content is never served.
+ * <br>
+ * The content is returned as a {@link ContentLease} with a read only view of the chunk, without copying it into the
+ * heap. The chunk of an evicted entry is not reused until all its leases are closed. The threads that miss the same
+ * content at the same time share one load, and every one of them receives its own lease.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class OffHeapContentCache {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int MAX_ENTRY_BYTES = 256 * 1024;
+    public static final int SLAB_BYTES = 1024 * 1024;
+    public static final long DEFAULT_CAPACITY_BYTES = 256L * 1024 * 1024;
+
+    private static final int MIN_CHUNK_BYTES = 1024;
+
+    private final long capacityBytes;
+    private final int maxSlabs;
+    private final SizeClass[] sizeClasses;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private int slabs;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final SingleFlight<String, ByteBuffer> loads = new SingleFlight<>();
+
+    /**
+     * Creates a new OffHeapContentCache with the default capacity
+     */
+    public OffHeapContentCache() {
+        this(DEFAULT_CAPACITY_BYTES);
+    }
+
+    /**
+     * Creates a new OffHeapContentCache. The memory is allocated when it is needed
+     *
+     * @param capacityBytes a long with the max number of bytes of direct memory. It is rounded down to a multiple
+     * of SLAB_BYTES
+     */
+    public OffHeapContentCache(long capacityBytes) {
+        if (capacityBytes < SLAB_BYTES) {
+            throw new IllegalArgumentException("capacityBytes must be at least "+SLAB_BYTES);
+        }
+        this.capacityBytes = capacityBytes;
+        this.maxSlabs = (int) Math.min(Integer.MAX_VALUE, capacityBytes / SLAB_BYTES);
+        List<SizeClass> classes = new ArrayList<>();
+        for (int chunkSize = MIN_CHUNK_BYTES; chunkSize <= MAX_ENTRY_BYTES; chunkSize *= 2) {
+            classes.add(new SizeClass(chunkSize));
+        }
+        this.sizeClasses = classes.toArray(new SizeClass[0]);
+    }
+
+    /**
+     * Gets the content from the cache
+     *
+     * @param objectId a String with the Id of the document
+     * @param changeToken a String with the change token of the document
+     * @return a ContentLease with the content or null if it is not in the cache. Close it when it is not needed
+     */
+    public ContentLease get(String objectId, String changeToken) {
+        Entry entry = entries.get(getKey(objectId, changeToken));
+        if (entry == null || !entry.acquire()) {
+            return null;
+        }
+        entry.referenced = true;
+        return entry.lease();
+    }
+
+    /**
+     * Saves a copy of the content in the cache. The position of the buffer is not changed
+     *
+     * @param objectId a String with the Id of the document
+     * @param changeToken a String with the change token of the document
+     * @param content a ByteBuffer with the content between its position and its limit
+     * @return a ContentLease with the content saved or null if the content is too large or there is no room for it
+     */
+    public ContentLease put(String objectId, String changeToken, ByteBuffer content) {
+        int length = content.remaining();
+        Chunk chunk = allocate(length);
+        if (chunk == null) {
+            return null;
+        }
+        ByteBuffer target = chunk.buffer.duplicate();
+        target.put(content.duplicate());
+        return publish(getKey(objectId, changeToken), chunk, length);
+    }
+
+    /**
+     * Saves the content read from the stream in the cache. The stream is read until length bytes and it is not closed.
+     * If there is no room for the content it is read into the heap, so the stream is always consumed
+     *
+     * @param objectId a String with the Id of the document
+     * @param changeToken a String with the change token of the document
+     * @param content an InputStream with the content
+     * @param length a int with the length of the content
+     * @return a ContentLease with the content
+     * @throws IOException if the stream can not be read or it does not have exactly length bytes
+     */
+    ContentLease put(String objectId, String changeToken, InputStream content, int length) throws IOException {
+        Chunk chunk = allocate(length);
+        if (chunk == null) {
+            byte[] bytes = IOUtils.toByteArray(content);
+            if (bytes.length != length) {
+                throw new IOException("The content of document "+objectId+" has "+bytes.length+" bytes instead of "+length);
+            }
+            return new ContentLease(ByteBuffer.wrap(bytes));
+        }
+        try {
+            ByteBuffer target = chunk.buffer.duplicate();
+            target.limit(length);
+            ReadableByteChannel source = Channels.newChannel(content);
+            while (target.hasRemaining()) {
+                if (source.read(target) == -1) {
+                    throw new IOException("The content of document "+objectId+" has "+target.position()+" bytes instead of "+length);
+                }
+            }
+            //a longer content would be truncated
+            if (content.read() != -1) {
+                throw new IOException("The content of document "+objectId+" has more than "+length+" bytes");
+            }
+        } catch (IOException | RuntimeException e) {
+            free(chunk);
+            throw e;
+        }
+        return publish(getKey(objectId, changeToken), chunk, length);
+    }
+
+    /**
+     * Gets the content of the document from the cache or loads it into the cache, from the next tier if it is not null
+     * or from the server
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param changeToken a String with the change token of the document
+     * @param length a long with the length of the content
+     * @param next a DiskContentCache with the next tier or null
+     * @return a ContentLease or null if the document can not be cached
+     * @throws IOException if the content can not be downloaded
+     */
+    ContentLease getContent(Session session, String docId, String changeToken, long length, DiskContentCache next) throws IOException {
+        if (changeToken == null || length <= 0 || length > MAX_ENTRY_BYTES) {
+            return null;
+        }
+        ContentLease lease = get(docId, changeToken);
+        if (lease != null) {
+            hits.incrementAndGet();
+            return lease;
+        }
+        misses.incrementAndGet();
+        ByteBuffer notCached;
+        try {
+            notCached = loads.execute(getKey(docId, changeToken), () -> {
+                try {
+                    return load(session, docId, changeToken, (int) length, next);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (notCached != null) {
+            //the threads that share the load must not share the position of the buffer
+            return new ContentLease(notCached.duplicate());
+        }
+        //every thread that shares the load takes its own lease. null if it has been evicted in the meantime
+        return get(docId, changeToken);
+    }
+
+    /**
+     * Loads the content into the cache from the next tier or from the server
+     *
+     * @return null if the content has been saved in the cache or it has no content, or a ByteBuffer with the content
+     * if there is no room for it
+     */
+    private ByteBuffer load(Session session, String docId, String changeToken, int length, DiskContentCache next) throws IOException {
+        ByteBuffer cached = next == null ? null : next.getContent(session, docId, changeToken, length);
+        if (cached != null) {
+            try (ContentLease lease = put(docId, changeToken, cached)) {
+                return lease != null ? null : cached;
+            }
+        }
+        ContentStream contentStream = ContentTransfer.openContentStream(session, docId, null, null);
+        if (contentStream == null || contentStream.getStream() == null) {
+            return null;
+        }
+        try (InputStream in = contentStream.getStream(); ContentLease lease = put(docId, changeToken, in, length)) {
+            return lease.isOffHeap() ? null : lease.getBuffer();
+        }
+    }
+
+    /**
+     * Removes all the contents of the document, whatever its change token and the version label of its Id. The
+     * leases returned are still valid
+     *
+     * @param objectId a String with the Id of the document
+     */
+    public void invalidate(String objectId) {
+        String nodeId = AlfrescoAPI.getNodeId(objectId);
+        for (Entry entry : entries.values()) {
+            if (AlfrescoAPI.getNodeId(entry.key.substring(0, entry.key.indexOf('\u0000'))).equals(nodeId)) {
+                synchronized (this) {
+                    evict(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the contents. The direct memory is kept to be used again
+     */
+    public synchronized void clear() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            evict(entry);
+        }
+    }
+
+    private ContentLease publish(String key, Chunk chunk, int length) {
+        Entry entry = new Entry(key, chunk, length);
+        //the lease of the caller
+        entry.acquire();
+        synchronized (this) {
+            chunk.entry = entry;
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                evictEntry(previous);
+            }
+        }
+        bytes.addAndGet(length);
+        return entry.lease();
+    }
+
+    /**
+     * Gets a free chunk for the length given, allocating a new slab or evicting an entry of the same size
+     *
+     * @return a Chunk or null if the length is too large or all the chunks of the size are leased
+     */
+    private synchronized Chunk allocate(int length) {
+        if (length <= 0 || length > MAX_ENTRY_BYTES) {
+            rejections.incrementAndGet();
+            return null;
+        }
+        SizeClass sizeClass = sizeClasses[getSizeClass(length)];
+        if (sizeClass.free.isEmpty() && slabs < maxSlabs) {
+            sizeClass.addSlab(ByteBuffer.allocateDirect(SLAB_BYTES));
+            slabs++;
+            logger.debug("slab allocated for chunks of:"+sizeClass.chunkSize+" slabs:"+slabs);
+        }
+        //every chunk gets a second chance before its entry is evicted
+        int sweeps = 2 * sizeClass.chunks.size();
+        while (sizeClass.free.isEmpty() && sweeps-- > 0) {
+            Chunk chunk = sizeClass.chunks.get(sizeClass.hand);
+            sizeClass.hand = (sizeClass.hand + 1) % sizeClass.chunks.size();
+            Entry entry = chunk.entry;
+            if (entry == null) {
+                //evicted but still leased, or being written
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                evict(entry);
+            }
+        }
+        Chunk chunk = sizeClass.free.poll();
+        if (chunk == null) {
+            rejections.incrementAndGet();
+        }
+        return chunk;
+    }
+
+    private void evict(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            evictEntry(entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the reference of the cache to the entry. Its chunk is freed when its last lease is closed
+     */
+    private void evictEntry(Entry entry) {
+        entry.chunk.entry = null;
+        bytes.addAndGet(-entry.length);
+        entry.release();
+    }
+
+    private synchronized void free(Chunk chunk) {
+        chunk.entry = null;
+        chunk.sizeClass.free.add(chunk);
+    }
+
+    private static int getSizeClass(int length) {
+        int chunkSize = Math.max(MIN_CHUNK_BYTES, Integer.highestOneBit(length - 1) << 1);
+        return Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(MIN_CHUNK_BYTES);
+    }
+
+    private static String getKey(String objectId, String changeToken) {
+        return objectId + '\u0000' + changeToken;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * Gets the bytes of direct memory allocated by the cache
+     *
+     * @return a long with the number of bytes of the slabs
+     */
+    public synchronized long getAllocatedBytes() {
+        return (long) slabs * SLAB_BYTES;
+    }
+
+    /**
+     * Gets the bytes of the contents in the cache. It is lower than the allocated bytes because every content uses
+     * a whole chunk
+     *
+     * @return a long with the number of bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Gets the number of contents in the cache
+     *
+     * @return a int with the number of contents
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of contents that have not been cached because they were too large or all the chunks of their
+     * size were leased or there was not any chunk of their size
+     *
+     * @return a long with the number of contents
+     */
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OffHeapContentCache[contents=%d, bytes=%d, allocatedBytes=%d, hits=%d, misses=%d, evictions=%d, rejections=%d]",
+                size(), getBytes(), getAllocatedBytes(), getHits(), getMisses(), getEvictions(), getRejections());
+    }
+
+    /**
+     * The chunks of one size
+     */
+    private static final class SizeClass {
+        final int chunkSize;
+        final List<Chunk> chunks = new ArrayList<>();
+        final ArrayDeque<Chunk> free = new ArrayDeque<>();
+        int hand;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        void addSlab(ByteBuffer slab) {
+            for (int offset = 0; offset + chunkSize <= slab.capacity(); offset += chunkSize) {
+                Chunk chunk = new Chunk(this, slab.slice(offset, chunkSize));
+                chunks.add(chunk);
+                free.add(chunk);
+            }
+        }
+    }
+
+    /**
+     * A part of a slab that keeps one content
+     */
+    private static final class Chunk {
+        final SizeClass sizeClass;
+        final ByteBuffer buffer;
+        //the entry saved in the chunk. null when the chunk is free, being written or evicted but leased
+        Entry entry;
+
+        Chunk(SizeClass sizeClass, ByteBuffer buffer) {
+            this.sizeClass = sizeClass;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * A content of the cache. It is counted by the cache while it is in the cache and by every lease
+     */
+    final class Entry {
+        final String key;
+        final Chunk chunk;
+        final int length;
+        final AtomicInteger references = new AtomicInteger(1);
+        volatile boolean referenced;
+
+        Entry(String key, Chunk chunk, int length) {
+            this.key = key;
+            this.chunk = chunk;
+            this.length = length;
+        }
+
+        /**
+         * Adds a reference to the entry
+         *
+         * @return false if the entry has been evicted and its chunk freed
+         */
+        boolean acquire() {
+            while (true) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                free(chunk);
+            }
+        }
+
+        ContentLease lease() {
+            ByteBuffer view = chunk.buffer.asReadOnlyBuffer();
+            view.limit(length);
+            return new ContentLease(view, this);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The metrics of one operation of {@link AlfrescoAPI} at the moment the snapshot was taken. The latencies are in
+ * microseconds.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class OperationSnapshot {
+
+    private final String name;
+    private final long calls;
+    private final Map<String, Long> errors;
+    private final long roundTrips;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    OperationSnapshot(String name, long calls, Map<String, Long> errors, long roundTrips, long meanMicros, long p50Micros,
+            long p99Micros, long p999Micros, long maxMicros) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = Collections.unmodifiableMap(errors);
+        this.roundTrips = roundTrips;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Gets the name of the operation. It is the name of the AlfrescoAPI method
+     *
+     * @return a String with the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Gets the number of calls that have thrown an exception by the class name of the exception
+     *
+     * @return a Map<String, Long> that can not be modified
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    public long getErrorCount() {
+        long total = 0;
+        for (Long count : errors.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of HTTP requests made to the server by all the calls
+     *
+     * @return a long with the number of requests
+     */
+    public long getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * Gets the mean number of HTTP requests made to the server by every call
+     *
+     * @return a double with the mean number of requests
+     */
+    public double getRoundTripsPerCall() {
+        return calls == 0 ? 0 : (double) roundTrips / calls;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[calls=%d, errors=%d, roundTrips/call=%.2f, mean=%dus, p50=%dus, p99=%dus, p999=%dus, max=%dus]",
+                name, calls, getErrorCount(), getRoundTripsPerCall(), meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
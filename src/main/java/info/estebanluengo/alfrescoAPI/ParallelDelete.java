@@ -0,0 +1,205 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.FailedToDeleteData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Deletes the children of a folder with several threads. The children are listed first, asking only for the properties
+ * needed to delete them, and then deleted by a fixed pool of threads. A failure deleting one child is recorded and
+ * the rest of children are deleted anyway. If the thread that deletes is interrupted the children that have not been
+ * deleted yet are returned as pending.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+final class ParallelDelete {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    //min time between two calls to the progress listener
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private final Session session;
+    private final boolean allVersions;
+    private final DeleteProgressListener listener;
+    private final List<String> deletedIds = new ArrayList<>();
+    private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastProgress = new AtomicLong();
+    private long startTime;
+    private long total;
+
+    private ParallelDelete(Session session, boolean allVersions, DeleteProgressListener listener) {
+        this.session = session;
+        this.allVersions = allVersions;
+        this.listener = listener;
+    }
+
+    /**
+     * Deletes all the children of the folder
+     *
+     * @param session a Session object that is connected with the server
+     * @param folder a Folder object whose children are deleted
+     * @param allVersions a boolean. True value indicates that all versions of the children will be deleted
+     * @param concurrency a int with the number of threads that delete the children
+     * @param pageSize a int with the number of children listed in every call to the server
+     * @param listener a DeleteProgressListener object or null
+     * @return a DeleteResult with the items deleted and the items that could not be deleted
+     */
+    static DeleteResult deleteChildren(Session session, Folder folder, boolean allVersions, int concurrency, int pageSize,
+            DeleteProgressListener listener) {
+        if (concurrency <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("concurrency and pageSize must be greater than 0");
+        }
+        return new ParallelDelete(session, allVersions, listener).run(folder, concurrency, pageSize);
+    }
+
+    private DeleteResult run(Folder folder, int concurrency, int pageSize) {
+        startTime = System.currentTimeMillis();
+        //list all the children before deleting so that the paging is not affected by the deletes
+        List<CmisObject> children = listChildren(folder, pageSize);
+        total = children.size();
+        logger.debug("deleting "+total+" children of folder:"+folder.getPath()+" with "+concurrency+" threads");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, children.size())));
+        final CountDownLatch done = new CountDownLatch(children.size());
+        try {
+            for (final CmisObject child : children) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            delete(child);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while deleting the children of folder:"+folder.getPath());
+        } finally {
+            executor.shutdownNow();
+            AlfrescoAPI.invalidateFolder(folder.getId(), folder.getPath());
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (listener != null) {
+            listener.onProgress(deleted.get(), failed.get(), total, itemsPerSecond());
+        }
+        List<String> deletedCopy;
+        synchronized (deletedIds) {
+            deletedCopy = new ArrayList<>(deletedIds);
+        }
+        //the threads that were deleting when the delete was interrupted may still record their children
+        Map<String, Exception> failuresCopy = new HashMap<>(failures);
+        Set<String> finished = new HashSet<>(deletedCopy);
+        finished.addAll(failuresCopy.keySet());
+        List<String> pendingIds = new ArrayList<>();
+        for (CmisObject child : children) {
+            if (!finished.contains(child.getId())) {
+                pendingIds.add(child.getId());
+            }
+        }
+        return new DeleteResult(deletedCopy, failuresCopy, pendingIds, elapsed);
+    }
+
+    private List<CmisObject> listChildren(Folder folder, int pageSize) {
+        OperationContext oc = session.createOperationContext();
+        oc.setFilterString(PropertyIds.OBJECT_ID + "," + PropertyIds.BASE_TYPE_ID + "," + PropertyIds.OBJECT_TYPE_ID + "," + PropertyIds.PATH);
+        oc.setIncludeAllowableActions(false);
+        oc.setIncludePathSegments(false);
+        oc.setRenditionFilterString("cmis:none");
+        oc.setCacheEnabled(false);
+        oc.setMaxItemsPerPage(pageSize);
+        List<CmisObject> children = new ArrayList<>();
+        for (CmisObject child : folder.getChildren(oc)) {
+            children.add(child);
+        }
+        return children;
+    }
+
+    private void delete(CmisObject child) {
+        String repositoryId = session.getRepositoryInfo().getId();
+        try {
+            if (child.getBaseTypeId() == BaseTypeId.CMIS_FOLDER) {
+                FailedToDeleteData failedData = session.getBinding().getObjectService().deleteTree(repositoryId, child.getId(),
+                        allVersions, UnfileObject.DELETE, true, null);
+                AlfrescoAPI.invalidateFolder(child.getId(), ((Folder) child).getPath());
+                if (failedData != null && failedData.getIds() != null && !failedData.getIds().isEmpty()) {
+                    throw new CmisConstraintException("Some objects of the folder could not be deleted: "+failedData.getIds());
+                }
+            } else {
+                session.getBinding().getObjectService().deleteObject(repositoryId, child.getId(), allVersions, null);
+                AlfrescoAPI.invalidateObject(child.getId());
+            }
+            synchronized (deletedIds) {
+                deletedIds.add(child.getId());
+            }
+            deleted.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.debug("child could not be deleted:"+child.getId(), e);
+            failures.put(child.getId(), e);
+            failed.incrementAndGet();
+        } catch (Error e) {
+            //the error is recorded, so the child is not lost, and thrown again because the thread can not go on
+            logger.error("Error deleting child:"+child.getId(), e);
+            failures.put(child.getId(), new IllegalStateException("Error deleting child:"+child.getId(), e));
+            failed.incrementAndGet();
+            throw e;
+        }
+        notifyProgress();
+    }
+
+    private void notifyProgress() {
+        if (listener == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastProgress.get();
+        if (now - last >= PROGRESS_INTERVAL_MILLIS && lastProgress.compareAndSet(last, now)) {
+            listener.onProgress(deleted.get(), failed.get(), total, itemsPerSecond());
+        }
+    }
+
+    private double itemsPerSecond() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        return (deleted.get() + failed.get()) * 1000.0 / elapsed;
+    }
+}
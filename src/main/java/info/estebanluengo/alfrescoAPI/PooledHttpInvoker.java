@@ -0,0 +1,61 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.ApacheClientHttpInvoker;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * HttpInvoker that sends the requests with Apache HttpClient and keeps a pool of open connections to the server.
+ * The size of the pool is read from the session parameter {@link #MAX_CONNECTIONS}; without it OpenCMIS sizes the
+ * pool with the system property http.maxConnections.
+ * <br>
+ * It is used by {@link TransportConfig} through {@link CountingHttpInvoker}. OpenCMIS creates the HttpClient the
+ * first time the session makes a request and shares it with all the threads that use the session.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class PooledHttpInvoker extends ApacheClientHttpInvoker {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     * Session parameter with the maximum number of connections to the server
+     */
+    public static final String MAX_CONNECTIONS = "alfrescoAPI.httpInvoker.maxConnections";
+
+    @Override
+    protected DefaultHttpClient createHttpClient(UrlBuilder url, BindingSession session) {
+        DefaultHttpClient client = super.createHttpClient(url, session);
+        Object maxConnections = session.get(MAX_CONNECTIONS);
+        ClientConnectionManager manager = client.getConnectionManager();
+        if (maxConnections != null && manager instanceof PoolingClientConnectionManager) {
+            int max = Integer.parseInt(maxConnections.toString());
+            //the session talks to one server, so all the connections can go to the same route
+            ((PoolingClientConnectionManager) manager).setDefaultMaxPerRoute(max);
+            ((PoolingClientConnectionManager) manager).setMaxTotal(max);
+            logger.debug("HttpClient created with "+max+" connections");
+        }
+        return client;
+    }
+}
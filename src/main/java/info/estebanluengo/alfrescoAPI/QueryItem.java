@@ -0,0 +1,136 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+
+/**
+ * A lightweight row of a query result. The properties are the ones returned by the server for the SELECT
+ * list of the query, so building a QueryItem does not need any extra call to the server.
+ * The full CmisObject is only retrieved when {@link #getObject(Session)} is called.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class QueryItem {
+
+    private final String id;
+    private final Map<String, List<?>> valuesByQueryName;
+    private final Map<String, List<?>> valuesById;
+
+    /**
+     * Creates a new QueryItem from the data of a query result
+     *
+     * @param id a String that represent the object Id of the row
+     * @param qResult a QueryResult object with the properties returned by the server
+     */
+    QueryItem(String id, QueryResult qResult) {
+        this.id = id;
+        Map<String, List<?>> byQueryName = new LinkedHashMap<>();
+        Map<String, List<?>> byId = new LinkedHashMap<>();
+        for (PropertyData<?> propData : qResult.getProperties()) {
+            List<?> values = propData.getValues() == null ? Collections.emptyList() : propData.getValues();
+            if (propData.getQueryName() != null) {
+                byQueryName.put(propData.getQueryName(), values);
+            }
+            if (propData.getId() != null && !byId.containsKey(propData.getId())) {
+                byId.put(propData.getId(), values);
+            }
+        }
+        this.valuesByQueryName = Collections.unmodifiableMap(byQueryName);
+        this.valuesById = Collections.unmodifiableMap(byId);
+    }
+
+    /**
+     * Gets the object Id of the row
+     *
+     * @return a String that represent the object Id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the first value of the property. The property can be given by its query name, as it was written
+     * in the SELECT list (for example d.cmis:name), or by its property Id (for example cmis:name)
+     *
+     * @param <T> the type of the value
+     * @param name a String that represent the query name or the Id of the property
+     * @return the first value of the property or null if the property was not selected or has no value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getPropertyValue(String name) {
+        List<?> values = getPropertyValues(name);
+        return values.isEmpty() ? null : (T) values.get(0);
+    }
+
+    /**
+     * Gets all the values of the property. The property can be given by its query name or by its property Id
+     *
+     * @param name a String that represent the query name or the Id of the property
+     * @return a List with the values of the property. It is empty if the property was not selected
+     */
+    public List<?> getPropertyValues(String name) {
+        List<?> values = valuesByQueryName.get(name);
+        if (values == null) {
+            values = valuesById.get(name);
+        }
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    /**
+     * Gets the properties returned by the server indexed by their query name
+     *
+     * @return a Map<String, List<?>> that can not be modified
+     */
+    public Map<String, List<?>> getProperties() {
+        return valuesByQueryName;
+    }
+
+    /**
+     * Retrieves the full object from the server or from the session cache
+     *
+     * @param session a Session object that is connected with the server
+     * @return a CmisObject with all the data of the object
+     */
+    public CmisObject getObject(Session session) {
+        return session.getObject(session.createObjectId(id));
+    }
+
+    /**
+     * Retrieves the full object using the OperationContext given
+     *
+     * @param session a Session object that is connected with the server
+     * @param context an OperationContext object used to retrieve the object
+     * @return a CmisObject with the data requested by the context
+     */
+    public CmisObject getObject(Session session, OperationContext context) {
+        return session.getObject(session.createObjectId(id), context);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryItem[" + id + "]";
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Iterates over all the rows of a query fetching the pages from the server only when the consumer
+ * needs them. Only the current page and, if prefetch is enabled, the next prefetchPages pages are kept
+ * in memory, so a result set of any size can be walked with a bounded heap.
+ * <br>
+ * When prefetchPages is greater than 0 a background thread reads the next pages while the consumer is
+ * working with the current one. Call {@link #close()} if you stop iterating before the end so that the
+ * background thread is stopped.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class QueryIterator implements Iterator<QueryItem>, Closeable {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    //marker put in the queue by the background thread when there are no more pages
+    private static final List<QueryItem> END_OF_RESULTS = Collections.unmodifiableList(new ArrayList<QueryItem>(0));
+
+    private final Iterator<QueryResult> results;
+    private final BlockingQueue<List<QueryItem>> prefetchedPages;
+    private final Thread prefetchThread;
+    private volatile RuntimeException prefetchError;
+    private volatile boolean closed;
+    private Iterator<QueryItem> currentPage = Collections.<QueryItem>emptyList().iterator();
+    private boolean finished;
+    private long itemsRead;
+
+    /**
+     * Creates a new QueryIterator. The query is sent to the server when the first item is requested.
+     *
+     * @param session a Session object that is connected with the server
+     * @param query a String that contains the query to be executed
+     * @param pageSize a int with the number of rows that are fetched in every call to the server
+     * @param prefetchPages a int with the number of pages that are fetched in advance. 0 disables the prefetch
+     * @param cache a boolean. True indicates that cache is used and false indicates that the
+     * query is executed in the server
+     */
+    QueryIterator(Session session, String query, int pageSize, int prefetchPages, boolean cache) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0");
+        }
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages can not be negative");
+        }
+        OperationContext context = session.createOperationContext();
+        context.setCacheEnabled(cache);
+        context.setMaxItemsPerPage(pageSize);
+        //the iterator of ItemIterable asks the server for the next page only when the current one is consumed
+        ItemIterable<QueryResult> queryResults = session.query(query, false, context);
+        if (prefetchPages == 0) {
+            this.results = queryResults.iterator();
+            this.prefetchedPages = null;
+            this.prefetchThread = null;
+        } else {
+            this.results = null;
+            this.prefetchedPages = new ArrayBlockingQueue<>(prefetchPages);
+            this.prefetchThread = new Thread(new PagePrefetcher(queryResults, pageSize), "alfrescoAPI-query-prefetch");
+            this.prefetchThread.setDaemon(true);
+            this.prefetchThread.start();
+        }
+        logger.debug("QueryIterator created for query:"+query+" pageSize:"+pageSize+" prefetchPages:"+prefetchPages);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (results != null) {
+            return results.hasNext();
+        }
+        while (!currentPage.hasNext() && !finished) {
+            List<QueryItem> page;
+            try {
+                page = prefetchedPages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for the next page", e);
+            }
+            if (page == END_OF_RESULTS) {
+                finished = true;
+                if (prefetchError != null) {
+                    throw prefetchError;
+                }
+            } else {
+                currentPage = page.iterator();
+            }
+        }
+        return currentPage.hasNext();
+    }
+
+    @Override
+    public QueryItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        itemsRead++;
+        if (results != null) {
+            QueryResult qResult = results.next();
+            return new QueryItem(AlfrescoAPI.getObjectId(qResult), qResult);
+        }
+        return currentPage.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove is not supported");
+    }
+
+    /**
+     * Gets the number of items returned by this iterator
+     *
+     * @return a long with the number of items read
+     */
+    public long getItemsRead() {
+        return itemsRead;
+    }
+
+    /**
+     * Stops the background thread, if any, and releases the pages that have been prefetched
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (prefetchThread != null) {
+            prefetchThread.interrupt();
+            prefetchedPages.clear();
+        }
+        logger.debug("QueryIterator closed after "+itemsRead+" items");
+    }
+
+    /**
+     * Reads the pages in a background thread and puts them in the queue. The queue is bounded so the
+     * thread waits when the consumer is prefetchPages pages behind.
+     */
+    private class PagePrefetcher implements Runnable {
+        private final ItemIterable<QueryResult> queryResults;
+        private final int pageSize;
+
+        PagePrefetcher(ItemIterable<QueryResult> queryResults, int pageSize) {
+            this.queryResults = queryResults;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<QueryItem> page = new ArrayList<>(pageSize);
+                for (QueryResult qResult : queryResults) {
+                    if (closed) {
+                        return;
+                    }
+                    page.add(new QueryItem(AlfrescoAPI.getObjectId(qResult), qResult));
+                    if (page.size() == pageSize) {
+                        prefetchedPages.put(page);
+                        page = new ArrayList<>(pageSize);
+                    }
+                }
+                if (!page.isEmpty()) {
+                    prefetchedPages.put(page);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error prefetching query results", e);
+                prefetchError = e;
+            }
+            try {
+                prefetchedPages.put(END_OF_RESULTS);
+            } catch (InterruptedException e) {
+                //closed by the consumer
+            }
+        }
+    }
+}
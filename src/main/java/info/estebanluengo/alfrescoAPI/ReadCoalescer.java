@@ -0,0 +1,136 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+import org.apache.chemistry.opencmis.client.api.Session;
+
+/**
+ * Collapses the identical reads that several threads make at the same time into one request to the server. A read
+ * is identical to another one when it is made with the same Session, the same operation, the same object and the
+ * same {@link ContextProfile}. The threads that arrive while the first one is waiting for the server receive the
+ * same object or the same exception. Nothing is cached: the next read after the response makes a new request.
+ * <br>
+ * It is disabled by default, enable it with {@link #setEnabled(boolean)} or with the system property
+ * alfrescoAPI.coalesceReads=true. It is used by getDocument and getFolderByName of {@link AlfrescoAPI}. The threads
+ * that share a read receive the same CmisObject instance.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public final class ReadCoalescer {
+
+    private static volatile boolean enabled = Boolean.getBoolean("alfrescoAPI.coalesceReads");
+    private static final SingleFlight<ReadKey, Object> reads = new SingleFlight<>();
+
+    private ReadCoalescer() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the coalescing of reads. The reads in flight are not affected
+     *
+     * @param enable a boolean. True enables the coalescing
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Gets the number of reads that have received the response of a read made by another thread
+     *
+     * @return a long with the number of reads collapsed
+     */
+    public static long getCollapsedReads() {
+        return reads.getSharedCalls();
+    }
+
+    /**
+     * Gets the number of reads that have been sent to the server while the coalescing was enabled
+     *
+     * @return a long with the number of reads executed
+     */
+    public static long getExecutedReads() {
+        return reads.getExecutions();
+    }
+
+    /**
+     * Gets the number of reads that are waiting for the server right now
+     *
+     * @return a int with the number of reads in flight
+     */
+    public static int getInFlight() {
+        return reads.getInFlight();
+    }
+
+    /**
+     * Makes the read or waits for the identical read that another thread is making. It can be used to collapse reads
+     * that AlfrescoAPI does not coalesce by itself
+     *
+     * @param session the Session of the read
+     * @param operation a String with the name of the operation
+     * @param id a String that identifies the object read
+     * @param variant an Object with the rest of the arguments that change the result, usually the ContextProfile. It
+     * must implement equals. It may be null
+     * @param read a Supplier that makes the read
+     * @return the result of the read
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T read(Session session, String operation, String id, Object variant, Supplier<T> read) {
+        if (!enabled) {
+            return read.get();
+        }
+        return (T) reads.execute(new ReadKey(session, operation, id, variant), read::get);
+    }
+
+    private static final class ReadKey {
+        private final Session session;
+        private final String operation;
+        private final String id;
+        private final Object variant;
+
+        ReadKey(Session session, String operation, String id, Object variant) {
+            this.session = session;
+            this.operation = operation;
+            this.id = id;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ReadKey)) {
+                return false;
+            }
+            ReadKey other = (ReadKey) obj;
+            //the objects of a Session must not be given to the callers of another Session
+            return session == other.session && operation.equals(other.operation) && id.equals(other.id)
+                    && Objects.equals(variant, other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(session);
+            hash = 31 * hash + operation.hashCode();
+            hash = 31 * hash + id.hashCode();
+            hash = 31 * hash + Objects.hashCode(variant);
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Downloads the content of a document into a file splitting it in several byte ranges that are fetched at the same
+ * time. Every range is written at its position of the file, which is created with the final size before starting.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+final class SegmentedDownload {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    //ranges smaller than this are not worth an extra request
+    static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+
+    private SegmentedDownload() {
+    }
+
+    /**
+     * Downloads the document content into the file
+     *
+     * @param session a Session object that is connected with the server
+     * @param docId a String that represent the document Id
+     * @param file a Path to the file where the content is written. It is overwritten if it exists
+     * @param segments a int with the max number of ranges
+     * @param executor an ExecutorService where the ranges are downloaded or null to use a pool with one thread per range
+     * @return a long with the number of bytes written
+     * @throws IOException if any range can not be downloaded or does not have the expected length
+     */
+    static long download(final Session session, final String docId, Path file, int segments, ExecutorService executor) throws IOException {
+        if (segments <= 0) {
+            throw new IllegalArgumentException("segments must be greater than 0");
+        }
+        final long length = getContentStreamLength(session, docId);
+        if (length <= 0) {
+            Files.deleteIfExists(file);
+            Files.createFile(file);
+            return 0;
+        }
+        int numSegments = (int) Math.max(1, Math.min(segments, (length + MIN_SEGMENT_SIZE - 1) / MIN_SEGMENT_SIZE));
+        final long segmentSize = (length + numSegments - 1) / numSegments;
+        logger.debug("downloading docId:"+docId+" length:"+length+" in "+numSegments+" segments");
+
+        boolean ownExecutor = executor == null;
+        ExecutorService pool = ownExecutor ? Executors.newFixedThreadPool(numSegments) : executor;
+        boolean completed = false;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+            final FileChannel channel = raf.getChannel();
+            List<Future<Long>> results = new ArrayList<>(numSegments);
+            for (int i = 0; i < numSegments; i++) {
+                final long offset = i * segmentSize;
+                final long rangeLength = Math.min(segmentSize, length - offset);
+                results.add(pool.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        long copied = ContentTransfer.copyRange(session, docId, offset, rangeLength, channel);
+                        if (copied != rangeLength) {
+                            throw new IOException("Range "+offset+"-"+(offset + rangeLength - 1)+" of document "+docId
+                                    +": expected "+rangeLength+" bytes but retrieved "+copied+" bytes");
+                        }
+                        return copied;
+                    }
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += getSegment(result, results);
+            }
+            channel.force(false);
+            completed = true;
+            return total;
+        } finally {
+            if (ownExecutor) {
+                pool.shutdownNow();
+            }
+            if (!completed) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static long getSegment(Future<Long> result, List<Future<Long>> results) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(results);
+            throw new IOException("Interrupted while downloading", e);
+        } catch (ExecutionException e) {
+            cancel(results);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void cancel(List<Future<Long>> results) {
+        for (Future<Long> result : results) {
+            result.cancel(true);
+        }
+    }
+
+    /**
+     * Gets the content length asking only for the properties needed
+     */
+    private static long getContentStreamLength(Session session, String docId) {
+        OperationContext oc = session.createOperationContext();
+        oc.setFilterString(PropertyIds.OBJECT_ID + "," + PropertyIds.BASE_TYPE_ID + "," + PropertyIds.OBJECT_TYPE_ID + ","
+                + PropertyIds.CONTENT_STREAM_LENGTH);
+        oc.setIncludeAllowableActions(false);
+        oc.setIncludePolicies(false);
+        oc.setIncludeAcls(false);
+        oc.setRenditionFilterString("cmis:none");
+        oc.setCacheEnabled(false);
+        Document doc = (Document) session.getObject(session.createObjectId(docId), oc);
+        return doc.getContentStreamLength();
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps a pool of warm Session objects so that the repository discovery round trip and the
+ * object cache of every Session are paid only once per user, url and transport.
+ * <br>
+ * OpenCMIS sessions are thread safe, so the same Session object is shared by all the threads that
+ * ask for the same key. Use {@link #getDefault()} to get the instance shared by the whole application
+ * or create a new SessionManager if you need an isolated pool.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class SessionManager {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final SessionManager defaultManager = new SessionManager();
+
+    private final ConcurrentMap<SessionKey, ManagedSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong createdSessions = new AtomicLong();
+    private final AtomicLong reusedSessions = new AtomicLong();
+
+    /**
+     * Returns the SessionManager shared by the whole application
+     *
+     * @return a SessionManager object
+     */
+    public static SessionManager getDefault() {
+        return defaultManager;
+    }
+
+    /**
+     * Returns a Session connected to the server for the user and url given. If there is a live Session
+     * for the same user and url created with the default transport it is returned, otherwise a new one is created with
+     * {@link AlfrescoAPI#createSession(java.lang.String, java.lang.String, java.lang.String)}.
+     * If the password is not the same used to create the live Session, a new Session is created with it and it
+     * replaces the live one only if the server accepts the password. Otherwise the exception is thrown and the live
+     * Session is kept in the pool.
+     *
+     * @param user a String that contains the username
+     * @param password a String that contains the password
+     * @param url an URL to the server. The URL has to be atompub style
+     *
+     * @return a Session object that allow access to the Alfresco Server
+     */
+    public Session getSession(String user, String password, String url) {
+        return getSession(user, password, url, TransportConfig.DEFAULT);
+    }
+
+    /**
+     * Returns a Session connected to the server for the user and url given. If there is no live Session for the
+     * same user, url and transport a new one is created with the HTTP settings of the transport. The Sessions of
+     * the same user and url created with other transports are kept apart in the pool.
+     *
+     * @param user a String that contains the username
+     * @param password a String that contains the password
+     * @param url an URL to the server. The URL has to be the one of the binding of the transport
+     * @param transport a TransportConfig with the binding and the HTTP settings of the new Session
+     *
+     * @return a Session object that allow access to the Alfresco Server
+     */
+    public Session getSession(String user, String password, String url, TransportConfig transport) {
+        SessionKey key = new SessionKey(user, url, transport);
+        while (true) {
+            ManagedSession managed = sessions.get(key);
+            if (managed == null) {
+                ManagedSession newManaged = new ManagedSession(password, transport);
+                managed = sessions.putIfAbsent(key, newManaged);
+                if (managed == null) {
+                    managed = newManaged;
+                }
+            }
+            if (!Objects.equals(managed.password, password)) {
+                //the live session is only replaced once the new password has been accepted by the server
+                logger.debug("password changed for session "+key+". Connecting a new session");
+                ManagedSession newManaged = new ManagedSession(password, transport);
+                Session session = newManaged.getSession(user, url);
+                if (!sessions.replace(key, managed, newManaged)) {
+                    logger.debug("session "+key+" replaced by another thread");
+                }
+                return session;
+            }
+            try {
+                return managed.getSession(user, url);
+            } catch (RuntimeException e) {
+                //do not keep a broken entry in the pool, the next call will try again
+                sessions.remove(key, managed);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Removes the Sessions of the user, url and binding from the pool, whatever the HTTP settings of their
+     * transport. The Sessions are not usable from the pool anymore but the threads that have a reference to them
+     * can continue working with them.
+     *
+     * @param user a String that contains the username
+     * @param url an URL to the server
+     * @param bindingType a BindingType used to create the Session
+     *
+     * @return true if there was a Session for this user, url and binding
+     */
+    public boolean release(String user, String url, BindingType bindingType) {
+        logger.debug("release called for user:"+user+" url:"+url);
+        boolean released = false;
+        for (SessionKey key : sessions.keySet()) {
+            if (key.user.equals(user) && key.url.equals(url) && key.transport.getBinding() == bindingType) {
+                released |= sessions.remove(key) != null;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Removes all the Sessions from the pool
+     */
+    public void clear() {
+        logger.debug("clear called");
+        sessions.clear();
+    }
+
+    /**
+     * Returns the number of Sessions that are live in the pool
+     *
+     * @return a int with the number of live Sessions
+     */
+    public int getLiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the number of Sessions created by this manager since it was created
+     *
+     * @return a long with the number of Sessions created
+     */
+    public long getCreatedSessions() {
+        return createdSessions.get();
+    }
+
+    /**
+     * Returns how many times a live Session has been returned instead of creating a new one
+     *
+     * @return a long with the number of reuses
+     */
+    public long getReusedSessions() {
+        return reusedSessions.get();
+    }
+
+    /**
+     * Holds one Session of the pool. The Session is created the first time is asked so that
+     * concurrent callers with the same key only create one Session.
+     */
+    private class ManagedSession {
+        private final String password;
+        private final TransportConfig transport;
+        private Session session;
+
+        ManagedSession(String password, TransportConfig transport) {
+            this.password = password;
+            this.transport = transport;
+        }
+
+        synchronized Session getSession(String user, String url) {
+            if (session == null) {
+                session = AlfrescoAPI.createSession(user, password, url, transport);
+                createdSessions.incrementAndGet();
+                logger.debug("new session created for user:"+user+" url:"+url);
+            } else {
+                reusedSessions.incrementAndGet();
+            }
+            return session;
+        }
+    }
+
+    /**
+     * Key of the pool. A Session is identified by the user, the url and the transport, which includes the binding type
+     */
+    private static final class SessionKey {
+        private final String user;
+        private final String url;
+        private final TransportConfig transport;
+
+        SessionKey(String user, String url, TransportConfig transport) {
+            this.user = user;
+            this.url = url;
+            this.transport = transport;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SessionKey)) {
+                return false;
+            }
+            SessionKey other = (SessionKey) obj;
+            return user.equals(other.user) && url.equals(other.url) && transport.equals(other.transport);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = user.hashCode();
+            hash = 31 * hash + url.hashCode();
+            hash = 31 * hash + transport.hashCode();
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return user + "@" + url + " (" + transport + ")";
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes only one call at the same time for every key. If a thread asks for a key that is being executed by
+ * another thread, it waits for that call and receives the same result or the same exception instead of
+ * executing the call again.
+ * <br>
+ * The result is not cached: once the call finishes the next request for the same key executes it again.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the results
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong sharedCalls = new AtomicLong();
+
+    /**
+     * Executes the call for the key or waits for the call that another thread is executing for the same key
+     *
+     * @param key the key that identifies the call
+     * @param callable a Callable with the call to be executed
+     * @return the result of the call
+     * @throws RuntimeException the exception thrown by the call. Checked exceptions are wrapped in an IllegalStateException
+     */
+    public V execute(K key, Callable<V> callable) {
+        FutureTask<V> task = new FutureTask<>(callable);
+        FutureTask<V> running = inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            executions.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+            running = task;
+        } else {
+            sharedCalls.incrementAndGet();
+        }
+        return getResult(running);
+    }
+
+    /**
+     * Gets the number of calls that have been executed
+     *
+     * @return a long with the number of executions
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * Gets the number of calls that have received the result of a call executed by another thread
+     *
+     * @return a long with the number of calls collapsed into another one
+     */
+    public long getSharedCalls() {
+        return sharedCalls.get();
+    }
+
+    /**
+     * Gets the number of calls that are being executed right now
+     *
+     * @return a int with the number of keys in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private V getResult(FutureTask<V> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a call in flight", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of one stage of a pipeline: the items and bytes processed, the errors, the time the workers have been busy
+ * and the time since the stage started until it finished. The counters are updated by the workers of the stage and can
+ * be read at any moment.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class StageMetrics {
+
+    private final String name;
+    private final int workers;
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    StageMetrics(String name, int workers) {
+        this.name = name;
+        this.workers = workers;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    void record(long itemBytes, long nanos) {
+        items.incrementAndGet();
+        bytes.addAndGet(itemBytes);
+        busyNanos.addAndGet(nanos);
+    }
+
+    void recordError(long nanos) {
+        errors.incrementAndGet();
+        busyNanos.addAndGet(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getItems() {
+        return items.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Gets the time that the workers have spent processing items, added up for all the workers
+     *
+     * @return a long with the number of milliseconds
+     */
+    public long getBusyMillis() {
+        return busyNanos.get() / 1000000;
+    }
+
+    /**
+     * Gets the time since the stage started until it finished or until now if it has not finished yet
+     *
+     * @return a long with the number of milliseconds
+     */
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1000000;
+    }
+
+    public double getItemsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? items.get() : items.get() * 1000.0 / elapsed;
+    }
+
+    public double getBytesPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? bytes.get() : bytes.get() * 1000.0 / elapsed;
+    }
+
+    /**
+     * Gets the fraction of time that the workers have been busy. A value near 1 means that this stage is the bottleneck
+     *
+     * @return a double between 0 and 1
+     */
+    public double getUtilization() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : Math.min(1.0, (double) getBusyMillis() / (elapsed * workers));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[workers=%d, items=%d, errors=%d, bytes=%d, items/s=%.1f, bytes/s=%.0f, utilization=%.2f]",
+                name, workers, getItems(), getErrors(), getBytes(), getItemsPerSecond(), getBytesPerSecond(), getUtilization());
+    }
+}
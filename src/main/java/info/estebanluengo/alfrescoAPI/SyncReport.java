@@ -0,0 +1,143 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of a call to {@link FolderSync#sync()}: the folders scanned completely, the changes read from the change
+ * log, the documents downloaded, moved and deleted, the bytes that did not have to be downloaded again and the
+ * documents that could not be synchronized with their exceptions.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class SyncReport {
+
+    private final long fullScans;
+    private final long changes;
+    private final long documents;
+    private final long downloaded;
+    private final long downloadedBytes;
+    private final long avoidedBytes;
+    private final long moved;
+    private final long deleted;
+    private final Map<String, Exception> failures;
+    private final long elapsedMillis;
+
+    SyncReport(long fullScans, long changes, long documents, long downloaded, long downloadedBytes, long avoidedBytes,
+            long moved, long deleted, Map<String, Exception> failures, long elapsedMillis) {
+        this.fullScans = fullScans;
+        this.changes = changes;
+        this.documents = documents;
+        this.downloaded = downloaded;
+        this.downloadedBytes = downloadedBytes;
+        this.avoidedBytes = avoidedBytes;
+        this.moved = moved;
+        this.deleted = deleted;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the number of folders that have been scanned completely instead of applying the changes of the change log
+     *
+     * @return a long with the number of folders
+     */
+    public long getFullScans() {
+        return fullScans;
+    }
+
+    /**
+     * Gets the number of changes read from the change log
+     *
+     * @return a long with the number of changes. 0 if all the folders have been scanned completely
+     */
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * Gets the number of documents of the local copy after the synchronization
+     *
+     * @return a long with the number of documents
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    public long getDownloaded() {
+        return downloaded;
+    }
+
+    /**
+     * Gets the number of bytes of content downloaded from the server
+     *
+     * @return a long with the number of bytes
+     */
+    public long getDownloadedBytes() {
+        return downloadedBytes;
+    }
+
+    /**
+     * Gets the number of bytes of the local copy that have not been downloaded because they had not changed. It is
+     * what a synchronization that downloads everything would have transferred on top of the downloaded bytes
+     *
+     * @return a long with the number of bytes
+     */
+    public long getAvoidedBytes() {
+        return avoidedBytes;
+    }
+
+    /**
+     * Gets the number of documents moved to another folder in the server whose local file has been moved without
+     * downloading it. Only the moves that do not change the cmis:changeToken of the document are counted; a rename
+     * changes it, so a renamed document is downloaded again
+     *
+     * @return a long with the number of documents
+     */
+    public long getMoved() {
+        return moved;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Gets the documents and folders that could not be synchronized
+     *
+     * @return a Map<String, Exception> with the path of every document or folder in the server and the exception thrown
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SyncReport[fullScans=%d, changes=%d, documents=%d, downloaded=%d, downloadedBytes=%d, avoidedBytes=%d, moved=%d, deleted=%d, failed=%d, elapsedMillis=%d]",
+                fullScans, changes, documents, downloaded, downloadedBytes, avoidedBytes, moved, deleted, failures.size(), elapsedMillis);
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.util.Map;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+
+/**
+ * Immutable HTTP settings of the sessions created with {@link AlfrescoAPI#createSession(String, String, String, TransportConfig)}.
+ * It chooses the CMIS binding, the HttpInvoker that sends the requests, the number of connections kept open to the
+ * server, the timeouts and the compression of the requests and the responses.
+ * <br>
+ * The binding can be AtomPub, which sends XML, or Browser, which sends JSON and makes much smaller responses. The
+ * url given to createSession must be the url of the binding. In Alfresco they end with /atom and /browser.
+ * <br>
+ * The default invoker of OpenCMIS uses HttpURLConnection, which keeps at most http.maxConnections (5 by default)
+ * idle connections per server for the whole JVM. When more threads work with the server at the same time the
+ * extra connections are closed after every request. The pooled invoker uses Apache HttpClient with a pool of
+ * maxConnections connections for every session.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public final class TransportConfig {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 5;
+
+    /**
+     * The settings of OpenCMIS: HttpURLConnection, no timeouts and no compression
+     */
+    public static final TransportConfig DEFAULT = new TransportConfig(BindingType.ATOMPUB, false, DEFAULT_MAX_CONNECTIONS, 0, 0,
+            false, false);
+
+    /**
+     * Apache HttpClient with 32 connections, 10 seconds to connect, 10 minutes to read and gzip responses
+     */
+    public static final TransportConfig POOLED = new TransportConfig(BindingType.ATOMPUB, true, 32, 10000, 600000, true, false);
+
+    private final BindingType binding;
+    private final boolean pooled;
+    private final int maxConnections;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final boolean compression;
+    private final boolean clientCompression;
+
+    /**
+     * Creates a new TransportConfig for the AtomPub binding
+     *
+     * @param pooled a boolean. True sends the requests with Apache HttpClient and a pool of connections
+     * @param maxConnections a int with the connections of the pool. It is only used by the pooled invoker
+     * @param connectTimeoutMillis a int with the milliseconds to wait for a connection. 0 waits forever
+     * @param readTimeoutMillis a int with the milliseconds to wait for data from the server. 0 waits forever
+     * @param compression a boolean. True asks the server to send the responses with gzip
+     * @param clientCompression a boolean. True sends the body of the requests with gzip
+     */
+    public TransportConfig(boolean pooled, int maxConnections, int connectTimeoutMillis, int readTimeoutMillis,
+            boolean compression, boolean clientCompression) {
+        this(BindingType.ATOMPUB, pooled, maxConnections, connectTimeoutMillis, readTimeoutMillis, compression, clientCompression);
+    }
+
+    /**
+     * Creates a new TransportConfig
+     *
+     * @param binding a BindingType. It can be ATOMPUB or BROWSER
+     * @param pooled a boolean. True sends the requests with Apache HttpClient and a pool of connections. False uses
+     * the default invoker of OpenCMIS
+     * @param maxConnections a int with the connections of the pool. It is only used by the pooled invoker
+     * @param connectTimeoutMillis a int with the milliseconds to wait for a connection. 0 waits forever
+     * @param readTimeoutMillis a int with the milliseconds to wait for data from the server. 0 waits forever
+     * @param compression a boolean. True asks the server to send the responses with gzip
+     * @param clientCompression a boolean. True sends the body of the requests with gzip. Only use it if the server
+     * accepts compressed requests
+     */
+    public TransportConfig(BindingType binding, boolean pooled, int maxConnections, int connectTimeoutMillis, int readTimeoutMillis,
+            boolean compression, boolean clientCompression) {
+        if (binding != BindingType.ATOMPUB && binding != BindingType.BROWSER) {
+            throw new IllegalArgumentException("Binding not supported: "+binding);
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be greater than 0");
+        }
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("The timeouts can not be negative");
+        }
+        this.binding = binding;
+        this.pooled = pooled;
+        this.maxConnections = maxConnections;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.compression = compression;
+        this.clientCompression = clientCompression;
+    }
+
+    /**
+     * Returns a copy of this config with other binding
+     *
+     * @param bindingType a BindingType. It can be ATOMPUB or BROWSER
+     * @return a TransportConfig with the same options
+     */
+    public TransportConfig withBinding(BindingType bindingType) {
+        return new TransportConfig(bindingType, pooled, maxConnections, connectTimeoutMillis, readTimeoutMillis, compression, clientCompression);
+    }
+
+    /**
+     * Returns a copy of this config with the pooled invoker enabled or disabled
+     *
+     * @param pooledInvoker a boolean. True uses Apache HttpClient
+     * @return a TransportConfig with the same options
+     */
+    public TransportConfig withPooled(boolean pooledInvoker) {
+        return new TransportConfig(binding, pooledInvoker, maxConnections, connectTimeoutMillis, readTimeoutMillis, compression, clientCompression);
+    }
+
+    /**
+     * Returns a copy of this config with other number of connections for the pooled invoker
+     *
+     * @param connections a int with the number of connections
+     * @return a TransportConfig with the same options
+     */
+    public TransportConfig withMaxConnections(int connections) {
+        return new TransportConfig(binding, pooled, connections, connectTimeoutMillis, readTimeoutMillis, compression, clientCompression);
+    }
+
+    /**
+     * Returns a copy of this config with other timeouts
+     *
+     * @param connectMillis a int with the milliseconds to wait for a connection. 0 waits forever
+     * @param readMillis a int with the milliseconds to wait for data from the server. 0 waits forever
+     * @return a TransportConfig with the same options
+     */
+    public TransportConfig withTimeouts(int connectMillis, int readMillis) {
+        return new TransportConfig(binding, pooled, maxConnections, connectMillis, readMillis, compression, clientCompression);
+    }
+
+    /**
+     * Returns a copy of this config with other compression options
+     *
+     * @param responses a boolean. True asks for gzip responses
+     * @param requests a boolean. True sends gzip requests
+     * @return a TransportConfig with the same options
+     */
+    public TransportConfig withCompression(boolean responses, boolean requests) {
+        return new TransportConfig(binding, pooled, maxConnections, connectTimeoutMillis, readTimeoutMillis, responses, requests);
+    }
+
+    public BindingType getBinding() {
+        return binding;
+    }
+
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public boolean isClientCompression() {
+        return clientCompression;
+    }
+
+    /**
+     * Adds the session parameters of this config. The requests are always sent through {@link CountingHttpInvoker}
+     * so that the metrics count them
+     *
+     * @param parameter a Map with the session parameters
+     * @param url a String with the url of the binding
+     */
+    void apply(Map<String, String> parameter, String url) {
+        parameter.put(SessionParameter.BINDING_TYPE, binding.value());
+        if (binding == BindingType.BROWSER) {
+            parameter.put(SessionParameter.BROWSER_URL, url);
+            //the properties are sent by their id without the property definitions
+            parameter.put(SessionParameter.BROWSER_SUCCINCT, "true");
+        } else {
+            parameter.put(SessionParameter.ATOMPUB_URL, url);
+        }
+        parameter.put(SessionParameter.HTTP_INVOKER_CLASS, CountingHttpInvoker.class.getName());
+        if (pooled) {
+            parameter.put(CountingHttpInvoker.DELEGATE_CLASS, PooledHttpInvoker.class.getName());
+            parameter.put(PooledHttpInvoker.MAX_CONNECTIONS, Integer.toString(maxConnections));
+        }
+        if (connectTimeoutMillis > 0) {
+            parameter.put(SessionParameter.CONNECT_TIMEOUT, Integer.toString(connectTimeoutMillis));
+        }
+        if (readTimeoutMillis > 0) {
+            parameter.put(SessionParameter.READ_TIMEOUT, Integer.toString(readTimeoutMillis));
+        }
+        parameter.put(SessionParameter.COMPRESSION, Boolean.toString(compression));
+        parameter.put(SessionParameter.CLIENT_COMPRESSION, Boolean.toString(clientCompression));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TransportConfig)) {
+            return false;
+        }
+        TransportConfig other = (TransportConfig) obj;
+        return binding == other.binding && pooled == other.pooled && maxConnections == other.maxConnections
+                && connectTimeoutMillis == other.connectTimeoutMillis && readTimeoutMillis == other.readTimeoutMillis
+                && compression == other.compression && clientCompression == other.clientCompression;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = binding.hashCode();
+        hash = 31 * hash + Boolean.hashCode(pooled);
+        hash = 31 * hash + maxConnections;
+        hash = 31 * hash + connectTimeoutMillis;
+        hash = 31 * hash + readTimeoutMillis;
+        hash = 31 * hash + Boolean.hashCode(compression);
+        hash = 31 * hash + Boolean.hashCode(clientCompression);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "TransportConfig[binding=" + binding.value() + ", pooled=" + pooled + ", maxConnections=" + maxConnections + ", connectTimeout="
+                + connectTimeoutMillis + "ms, readTimeout=" + readTimeoutMillis + "ms, compression=" + compression
+                + ", clientCompression=" + clientCompression + "]";
+    }
+}
@@ -0,0 +1,517 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.Zip64Mode;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exports a folder tree of the server into one ZIP or TAR archive. The tree is walked by the calling thread, which
+ * writes the entries in the order of the walk, while the content of the next documents is downloaded by the download
+ * workers. The content is downloaded into temporary files, so a document is never held in memory, and the number
+ * of documents downloaded in advance is limited to maxPendingDownloads.
+ * <br>
+ * For every document a sidecar entry with the name of the document plus ".metadata.json" holds its properties.
+ * A document whose content can not be downloaded is recorded in the report and the export goes on without it.
+ * <br>
+ * Example:
+ * <pre>
+ * TreeExporter exporter = new TreeExporter(session);
+ * ExportReport report = exporter.export(folder, Paths.get("/backup/folder.zip"), TreeExporter.Format.ZIP);
+ * </pre>
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class TreeExporter {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    public static final int DEFAULT_DOWNLOAD_WORKERS = 8;
+    public static final String METADATA_SUFFIX = ".metadata.json";
+
+    //all the properties for the sidecar files, without what the export does not use
+    private static final ContextProfile EXPORT_PROFILE = new ContextProfile("export", null, false, IncludeRelationships.NONE,
+            false, 1000, false);
+
+    /**
+     * The archive formats
+     */
+    public enum Format {
+        ZIP, TAR
+    }
+
+    private final Session session;
+    private int downloadWorkers = DEFAULT_DOWNLOAD_WORKERS;
+    private int maxPendingDownloads = DEFAULT_DOWNLOAD_WORKERS * 2;
+    private Path tempDir;
+    private boolean includeMetadata = true;
+
+    /**
+     * Creates a new exporter with the default number of download workers
+     *
+     * @param session a Session object that is connected with the server
+     */
+    public TreeExporter(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Exports the folder tree into the file. The file is overwritten if it exists
+     *
+     * @param folder a Folder object to be exported. It is the root entry of the archive
+     * @param file a Path to the archive to be written
+     * @param format a Format of the archive
+     * @return an ExportReport with the entries written and the failures
+     * @throws IOException if the archive can not be written or the thread is interrupted
+     */
+    public ExportReport export(Folder folder, Path file, Format format) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), ContentTransfer.BUFFER_SIZE)) {
+            return export(folder, out, format);
+        }
+    }
+
+    /**
+     * Exports the folder tree into the stream. The archive is finished but the stream is not closed
+     *
+     * @param folder a Folder object to be exported. It is the root entry of the archive
+     * @param out an OutputStream where the archive is written
+     * @param format a Format of the archive
+     * @return an ExportReport with the entries written and the failures
+     * @throws IOException if the archive can not be written or the thread is interrupted
+     */
+    public ExportReport export(Folder folder, OutputStream out, Format format) throws IOException {
+        logger.debug("export called for folder:"+folder.getPath()+" format:"+format);
+        long start = System.currentTimeMillis();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        ExecutorService pool = Executors.newFixedThreadPool(downloadWorkers);
+        Run run = new Run(pool, format == Format.ZIP ? new ZipWriter(counter) : new TarWriter(counter));
+        try {
+            run.walk(folder, folder.getName());
+            while (!run.pending.isEmpty()) {
+                run.writeNext();
+            }
+            run.writer.finish();
+        } finally {
+            pool.shutdownNow();
+            run.discardPending();
+        }
+        ExportReport report = new ExportReport(run.folders, run.documents, run.contentBytes, counter.getByteCount(), run.failures,
+                System.currentTimeMillis() - start);
+        logger.debug("export finished:"+report);
+        return report;
+    }
+
+    public int getDownloadWorkers() {
+        return downloadWorkers;
+    }
+
+    /**
+     * Sets the number of documents downloaded at the same time. The max number of documents downloaded in advance is
+     * set to twice this value
+     *
+     * @param downloadWorkers a int greater than 0
+     */
+    public void setDownloadWorkers(int downloadWorkers) {
+        if (downloadWorkers <= 0) {
+            throw new IllegalArgumentException("downloadWorkers must be greater than 0");
+        }
+        this.downloadWorkers = downloadWorkers;
+        this.maxPendingDownloads = downloadWorkers * 2;
+    }
+
+    public int getMaxPendingDownloads() {
+        return maxPendingDownloads;
+    }
+
+    /**
+     * Sets the max number of documents that are downloaded and waiting to be written. It bounds the disk used by the
+     * temporary files
+     *
+     * @param maxPendingDownloads a int greater than 0
+     */
+    public void setMaxPendingDownloads(int maxPendingDownloads) {
+        if (maxPendingDownloads <= 0) {
+            throw new IllegalArgumentException("maxPendingDownloads must be greater than 0");
+        }
+        this.maxPendingDownloads = maxPendingDownloads;
+    }
+
+    public Path getTempDir() {
+        return tempDir;
+    }
+
+    /**
+     * Sets the directory of the temporary files
+     *
+     * @param tempDir a Path to a directory or null to use the default temporary directory
+     */
+    public void setTempDir(Path tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    public boolean isIncludeMetadata() {
+        return includeMetadata;
+    }
+
+    /**
+     * Sets if a metadata file is written for every document
+     *
+     * @param includeMetadata a boolean. True indicates that the metadata files are written
+     */
+    public void setIncludeMetadata(boolean includeMetadata) {
+        this.includeMetadata = includeMetadata;
+    }
+
+    /**
+     * An entry waiting to be written. The content of a document is being downloaded into a temporary file
+     */
+    private static final class PendingEntry {
+        final String name;
+        final Date modified;
+        final Future<Path> content;
+        final byte[] metadata;
+
+        PendingEntry(String name, Date modified, Future<Path> content, byte[] metadata) {
+            this.name = name;
+            this.modified = modified;
+            this.content = content;
+            this.metadata = metadata;
+        }
+
+        boolean isDirectory() {
+            return content == null;
+        }
+    }
+
+    /**
+     * The state of one call to export
+     */
+    private final class Run {
+        final ExecutorService pool;
+        final ArchiveWriter writer;
+        final Deque<PendingEntry> pending = new ArrayDeque<>();
+        final Map<String, Exception> failures = new LinkedHashMap<>();
+        final OperationContext context = EXPORT_PROFILE.toOperationContext(session);
+        long folders;
+        long documents;
+        long contentBytes;
+        int pendingDownloads;
+
+        Run(ExecutorService pool, ArchiveWriter writer) {
+            this.pool = pool;
+            this.writer = writer;
+        }
+
+        void walk(Folder folder, String path) throws IOException {
+            add(new PendingEntry(path + "/", toDate(folder.getLastModificationDate()), null, null));
+            for (CmisObject child : folder.getChildren(context)) {
+                String childPath = path + "/" + child.getName();
+                if (child instanceof Folder) {
+                    walk((Folder) child, childPath);
+                } else if (child instanceof Document) {
+                    Document doc = (Document) child;
+                    byte[] metadata = includeMetadata ? toJson(doc).getBytes(StandardCharsets.UTF_8) : null;
+                    Future<Path> content = pool.submit(() -> download(doc));
+                    pendingDownloads++;
+                    add(new PendingEntry(childPath, toDate(doc.getLastModificationDate()), content, metadata));
+                    while (pendingDownloads > maxPendingDownloads) {
+                        writeNext();
+                    }
+                }
+            }
+        }
+
+        private void add(PendingEntry entry) throws IOException {
+            pending.add(entry);
+            //write what is already downloaded so the queue does not grow with folders and small documents
+            while (!pending.isEmpty() && (pending.peek().isDirectory() || pending.peek().content.isDone())) {
+                writeNext();
+            }
+        }
+
+        private Path download(Document doc) throws IOException {
+            Path file = tempDir == null ? Files.createTempFile("alfrescoAPI-export", ".tmp")
+                    : Files.createTempFile(tempDir, "alfrescoAPI-export", ".tmp");
+            try {
+                //the length is -1 when the server does not know it, so only an empty document is not downloaded
+                if (doc.getContentStreamLength() != 0) {
+                    AlfrescoAPI.getDocumentContent(session, doc.getId(), file);
+                }
+                return file;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+
+        void writeNext() throws IOException {
+            PendingEntry entry = pending.poll();
+            if (entry.isDirectory()) {
+                writer.putDirectory(entry.name, entry.modified);
+                folders++;
+                return;
+            }
+            pendingDownloads--;
+            Path file;
+            try {
+                file = entry.content.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while exporting "+entry.name);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                logger.debug("document could not be exported:"+entry.name, cause);
+                failures.put(entry.name, cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                return;
+            }
+            try {
+                long size = Files.size(file);
+                writer.putFile(entry.name, size, entry.modified, file);
+                contentBytes += size;
+                documents++;
+                if (entry.metadata != null) {
+                    writer.putBytes(entry.name + METADATA_SUFFIX, entry.modified, entry.metadata);
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        /**
+         * Cancels the downloads that have not been written and deletes their temporary files
+         */
+        void discardPending() {
+            for (PendingEntry entry : pending) {
+                if (entry.content != null && !entry.content.cancel(true)) {
+                    try {
+                        Files.deleteIfExists(entry.content.get());
+                    } catch (Exception e) {
+                        logger.debug("temporary file not deleted for:"+entry.name);
+                    }
+                }
+            }
+            pending.clear();
+        }
+    }
+
+    private static Date toDate(Calendar calendar) {
+        return calendar == null ? new Date() : calendar.getTime();
+    }
+
+    /**
+     * Writes the properties of the document as a JSON object
+     */
+    static String toJson(CmisObject obj) {
+        StringBuilder sb = new StringBuilder("{\n");
+        boolean first = true;
+        for (Property<?> property : obj.getProperties()) {
+            if (!first) {
+                sb.append(",\n");
+            }
+            first = false;
+            sb.append("  ");
+            appendJsonString(sb, property.getId());
+            sb.append(": ");
+            List<?> values = property.getValues();
+            if (property.isMultiValued()) {
+                sb.append('[');
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    appendJsonValue(sb, values.get(i));
+                }
+                sb.append(']');
+            } else {
+                appendJsonValue(sb, values == null || values.isEmpty() ? null : values.get(0));
+            }
+        }
+        return sb.append("\n}\n").toString();
+    }
+
+    private static void appendJsonValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Calendar) {
+            appendJsonString(sb, ((Calendar) value).toInstant().toString());
+        } else {
+            appendJsonString(sb, value.toString());
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Writes the entries of one archive format
+     */
+    private abstract static class ArchiveWriter {
+        abstract void putDirectory(String name, Date modified) throws IOException;
+
+        abstract void putFile(String name, long size, Date modified, Path file) throws IOException;
+
+        abstract void putBytes(String name, Date modified, byte[] content) throws IOException;
+
+        abstract void finish() throws IOException;
+    }
+
+    private static final class ZipWriter extends ArchiveWriter {
+        private final ZipArchiveOutputStream zip;
+
+        ZipWriter(OutputStream out) {
+            zip = new ZipArchiveOutputStream(out);
+            zip.setUseZip64(Zip64Mode.AsNeeded);
+        }
+
+        @Override
+        void putDirectory(String name, Date modified) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setTime(modified.getTime());
+            zip.putArchiveEntry(entry);
+            zip.closeArchiveEntry();
+        }
+
+        @Override
+        void putFile(String name, long size, Date modified, Path file) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setSize(size);
+            entry.setTime(modified.getTime());
+            zip.putArchiveEntry(entry);
+            Files.copy(file, zip);
+            zip.closeArchiveEntry();
+        }
+
+        @Override
+        void putBytes(String name, Date modified, byte[] content) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(name);
+            entry.setSize(content.length);
+            entry.setTime(modified.getTime());
+            zip.putArchiveEntry(entry);
+            zip.write(content);
+            zip.closeArchiveEntry();
+        }
+
+        @Override
+        void finish() throws IOException {
+            zip.finish();
+        }
+    }
+
+    private static final class TarWriter extends ArchiveWriter {
+        private final TarArchiveOutputStream tar;
+
+        TarWriter(OutputStream out) {
+            tar = new TarArchiveOutputStream(out, StandardCharsets.UTF_8.name());
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        }
+
+        @Override
+        void putDirectory(String name, Date modified) throws IOException {
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setModTime(modified);
+            tar.putArchiveEntry(entry);
+            tar.closeArchiveEntry();
+        }
+
+        @Override
+        void putFile(String name, long size, Date modified, Path file) throws IOException {
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(size);
+            entry.setModTime(modified);
+            tar.putArchiveEntry(entry);
+            Files.copy(file, tar);
+            tar.closeArchiveEntry();
+        }
+
+        @Override
+        void putBytes(String name, Date modified, byte[] content) throws IOException {
+            TarArchiveEntry entry = new TarArchiveEntry(name);
+            entry.setSize(content.length);
+            entry.setModTime(modified);
+            tar.putArchiveEntry(entry);
+            tar.write(content);
+            tar.closeArchiveEntry();
+        }
+
+        @Override
+        void finish() throws IOException {
+            tar.finish();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the type definitions and the query names of their properties of one Session, so they are asked to the
+ * server only once. There is one cache for every Session and it can be used by several threads at the same time.
+ * The cache of a Session is discarded when the Session is garbage collected.
+ * <br>
+ * The cache is the value of a weak map whose key is the Session, so it must not keep a strong reference to the
+ * Session. It keeps the Session through a WeakReference and it keeps the definitions as they are sent by the binding,
+ * because the ObjectType objects of the client have a reference to their Session. A new ObjectType is built from the
+ * cached definition every time it is asked for, which does not ask the server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class TypeMetadataCache {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    private static final Map<Session, TypeMetadataCache> caches = Collections.synchronizedMap(new WeakHashMap<Session, TypeMetadataCache>());
+
+    private final WeakReference<Session> session;
+    private final ConcurrentMap<String, TypeDefinition> types = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> queryNames = new ConcurrentHashMap<>();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong savedFetches = new AtomicLong();
+
+    private TypeMetadataCache(Session session) {
+        this.session = new WeakReference<>(session);
+    }
+
+    /**
+     * Gets the cache of the Session. It is created the first time it is asked for.
+     *
+     * @param session a Session object that is connected with the server
+     * @return the TypeMetadataCache of the Session
+     */
+    public static TypeMetadataCache forSession(Session session) {
+        synchronized (caches) {
+            TypeMetadataCache cache = caches.get(session);
+            if (cache == null) {
+                cache = new TypeMetadataCache(session);
+                caches.put(session, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Loads the definitions of the folder and document types so the first calls with the Session do not have to ask for them
+     */
+    public void warmUp() {
+        logger.debug("warming up the type definitions");
+        Session current = getSession();
+        loadDefinition(current, BaseTypeId.CMIS_FOLDER.value());
+        loadDefinition(current, BaseTypeId.CMIS_DOCUMENT.value());
+    }
+
+    /**
+     * Gets the type definition. It is asked to the server only the first time
+     *
+     * @param typeId a String with the Id of the type. Example: cmis:folder
+     * @return an ObjectType with the definition of the type
+     */
+    public ObjectType getTypeDefinition(String typeId) {
+        Session current = getSession();
+        return current.getObjectFactory().convertTypeDefinition(loadDefinition(current, typeId));
+    }
+
+    private TypeDefinition loadDefinition(Session current, String typeId) {
+        TypeDefinition type = types.get(typeId);
+        if (type != null) {
+            savedFetches.incrementAndGet();
+            return type;
+        }
+        fetches.incrementAndGet();
+        type = current.getBinding().getRepositoryService().getTypeDefinition(current.getRepositoryInfo().getId(), typeId, null);
+        TypeDefinition previous = types.putIfAbsent(typeId, type);
+        return previous != null ? previous : type;
+    }
+
+    /**
+     * Gets the query name of a property of the type
+     *
+     * @param typeId a String with the Id of the type. Example: cmis:folder
+     * @param propertyId a String with the Id of the property. Example: cmis:objectId
+     * @return a String with the query name of the property or null if the type does not have the property
+     */
+    public String getQueryName(String typeId, String propertyId) {
+        String key = typeId + "/" + propertyId;
+        String queryName = queryNames.get(key);
+        if (queryName != null) {
+            savedFetches.incrementAndGet();
+            return queryName;
+        }
+        PropertyDefinition<?> propDef = loadDefinition(getSession(), typeId).getPropertyDefinitions().get(propertyId);
+        if (propDef == null) {
+            return null;
+        }
+        queryName = propDef.getQueryName();
+        queryNames.putIfAbsent(key, queryName);
+        return queryName;
+    }
+
+    private Session getSession() {
+        Session current = session.get();
+        if (current == null) {
+            throw new IllegalStateException("The Session of the type cache has been garbage collected");
+        }
+        return current;
+    }
+
+    /**
+     * Removes all the definitions. They will be asked to the server again
+     */
+    public void clear() {
+        types.clear();
+        queryNames.clear();
+    }
+
+    /**
+     * Gets the number of type definitions asked to the server
+     *
+     * @return a long with the number of fetches
+     */
+    public long getFetches() {
+        return fetches.get();
+    }
+
+    /**
+     * Gets the number of times that a definition or a query name has been taken from the cache instead of asking the server
+     *
+     * @return a long with the number of fetches saved
+     */
+    public long getSavedFetches() {
+        return savedFetches.get();
+    }
+}
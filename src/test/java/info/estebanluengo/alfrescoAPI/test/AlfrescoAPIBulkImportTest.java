@@ -0,0 +1,108 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.BulkImporter;
+import info.estebanluengo.alfrescoAPI.ImportReport;
+import info.estebanluengo.alfrescoAPI.StageMetrics;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This Test class imports a local directory tree with BulkImporter. It uses an in-memory repository so it does not
+ * need an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPIBulkImportTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final String[] DIRS = {"", "2015", "2015/05", "2015/06", "2016"};
+    private static final int FILES_PER_DIR = 20;
+
+    private static Session session;
+    private static Path sourceDir;
+
+    @BeforeClass
+    public static void setUp() throws IOException{
+        session = InMemoryRepository.createSession();
+        sourceDir = Files.createTempDirectory("bulkImport");
+        for (String dir: DIRS){
+            Path path = Files.createDirectories(sourceDir.resolve(dir));
+            for (int i = 0; i < FILES_PER_DIR; i++){
+                Files.write(path.resolve("file"+i+".txt"), ("content of "+dir+"/"+i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Files.createDirectories(sourceDir.resolve("empty"));
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException{
+        FileUtils.deleteDirectory(sourceDir.toFile());
+    }
+
+    @Test
+    public void importDirectory() throws IOException{
+        logger.debug("Init importDirectory test");
+        Folder target = AlfrescoAPI.createFolder(session, session.getRootFolder(), "import"+System.currentTimeMillis());
+        BulkImporter importer = new BulkImporter(session);
+        importer.setFolderWorkers(2);
+        importer.setUploadWorkers(8);
+        importer.setQueueCapacity(10);
+
+        ImportReport report = importer.importDirectory(sourceDir, target);
+        logger.info(report);
+        assertTrue(report.isSuccessful());
+        assertEquals(DIRS.length * FILES_PER_DIR, report.getUploaded());
+        assertEquals(0, report.getSkipped());
+        assertEquals(3, report.getStages().size());
+        for (StageMetrics stage: report.getStages()){
+            assertEquals(0, stage.getErrors());
+        }
+        assertNotNull(session.getObjectByPath(target.getPath()+"/empty"));
+        Document doc = (Document) session.getObjectByPath(target.getPath()+"/2015/05/file3.txt");
+        assertEquals(Files.size(sourceDir.resolve("2015/05/file3.txt")), doc.getContentStreamLength());
+
+        //the second import finds all the files and does not upload anything
+        Files.write(sourceDir.resolve("2016/new.txt"), "new".getBytes(StandardCharsets.UTF_8));
+        try{
+            report = importer.importDirectory(sourceDir, target);
+            logger.info(report);
+            assertTrue(report.isSuccessful());
+            assertEquals(1, report.getUploaded());
+            assertEquals(DIRS.length * FILES_PER_DIR, report.getSkipped());
+        }finally{
+            Files.delete(sourceDir.resolve("2016/new.txt"));
+        }
+    }
+}
@@ -15,26 +15,59 @@
  */
 package info.estebanluengo.alfrescoAPI.test;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ObjectName;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
 import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.Relationship;
 import org.apache.chemistry.opencmis.client.api.SecondaryType;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisContentAlreadyExistsException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisUnauthorizedException;
 import org.apache.commons.io.IOUtils;
 import static org.junit.Assert.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ChangeLogPoller;
+import info.estebanluengo.alfrescoAPI.DeleteProgressListener;
+import info.estebanluengo.alfrescoAPI.DeleteResult;
+import info.estebanluengo.alfrescoAPI.FolderCache;
+import info.estebanluengo.alfrescoAPI.FolderSync;
+import info.estebanluengo.alfrescoAPI.Metrics;
+import info.estebanluengo.alfrescoAPI.ObjectCache;
+import info.estebanluengo.alfrescoAPI.OperationSnapshot;
+import info.estebanluengo.alfrescoAPI.SessionManager;
+import info.estebanluengo.alfrescoAPI.SyncReport;
+import info.estebanluengo.alfrescoAPI.TransportConfig;
+import info.estebanluengo.alfrescoAPI.TypeMetadataCache;
 import info.estebanluengo.alfrescoAPI.test.conf.AppConfig;
 import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -66,6 +99,61 @@ public class AlfrescoAPICRUDTest extends AlfrescoAPITest
         assertNotNull(session);        
     }
     
+    @Test
+    public void createSessionWithPooledTransport() throws Exception{
+        logger.debug("Init createSessionWithPooledTransport test");
+        createSessionIfNeeded();
+        Folder parentFolder =  getFolder(testProperties.getUsername());
+        TransportConfig transport = TransportConfig.POOLED.withMaxConnections(8).withTimeouts(5000, 60000);
+        Session pooledSession = AlfrescoAPI.createSession(testProperties.getUsername(), testProperties.getPassword(),
+                testProperties.getServer(), transport);
+        byte[] content = getFile();
+        Document doc = AlfrescoAPI.createDocument(pooledSession, parentFolder, getFileName(), content, PDF_MIME_TYPE);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try{
+            List<Future<byte[]>> reads = new ArrayList<>();
+            for (int i = 0; i < 64; i++){
+                reads.add(executor.submit(() -> AlfrescoAPI.getDocumentContent(pooledSession, doc.getId())));
+            }
+            for (Future<byte[]> read : reads){
+                assertArrayEquals(content, read.get());
+            }
+        }finally{
+            executor.shutdown();
+            AlfrescoAPI.deleteDocument(session, doc.getId(), true);
+        }
+    }
+
+    @Test
+    public void getManagedSession(){
+        logger.debug("Init getManagedSession test");
+        SessionManager manager = new SessionManager();
+        Session session1 = manager.getSession(testProperties.getUsername(), testProperties.getPassword(), testProperties.getServer());
+        Session session2 = manager.getSession(testProperties.getUsername(), testProperties.getPassword(), testProperties.getServer());
+        assertNotNull(session1);
+        assertSame(session1, session2);
+        assertEquals(1, manager.getLiveSessions());
+        assertEquals(1, manager.getCreatedSessions());
+        assertEquals(1, manager.getReusedSessions());
+        //a wrong password does not replace the live session
+        try{
+            manager.getSession(testProperties.getUsername(), testProperties.getPassword()+"wrong", testProperties.getServer());
+            fail("The server accepted a wrong password");
+        }catch(CmisUnauthorizedException e){
+            //expected
+        }
+        assertSame(session1, manager.getSession(testProperties.getUsername(), testProperties.getPassword(), testProperties.getServer()));
+        //an equal transport reuses the session, other transport settings get their own session
+        assertSame(session1, manager.getSession(testProperties.getUsername(), testProperties.getPassword(), testProperties.getServer(),
+                TransportConfig.DEFAULT.withTimeouts(0, 0)));
+        Session session3 = manager.getSession(testProperties.getUsername(), testProperties.getPassword(), testProperties.getServer(),
+                TransportConfig.DEFAULT.withTimeouts(5000, 60000));
+        assertNotSame(session1, session3);
+        assertEquals(2, manager.getLiveSessions());
+        assertTrue(manager.release(testProperties.getUsername(), testProperties.getServer(), BindingType.ATOMPUB));
+        assertEquals(0, manager.getLiveSessions());
+    }
+
     @Test
     public void createFolder(){
         logger.debug("Init createFolder test");
@@ -108,6 +196,52 @@ public class AlfrescoAPICRUDTest extends AlfrescoAPITest
         }                
     }
     
+    @Test
+    public void createFoldersWithCache(){
+        logger.debug("Init createFoldersWithCache test");
+        createSessionIfNeeded();
+        Folder parentFolder =  getFolder(testProperties.getUsername());
+        String folderName = "cache1/cache2/cache3";
+        FolderCache cache = AlfrescoAPI.getFolderCache();
+        try{
+            Folder newFolder = AlfrescoAPI.createFolders(session, parentFolder, folderName);
+            long hits = cache.getHits();
+            Folder sameFolder = AlfrescoAPI.createFolders(session, parentFolder, folderName);
+            assertEquals(newFolder.getId(), sameFolder.getId());
+            assertEquals(hits + 3, cache.getHits());
+            Folder folder1 = AlfrescoAPI.getFolderByName(session, parentFolder, "cache1");
+            assertNotNull(folder1);
+            assertEquals(hits + 4, cache.getHits());
+        }finally{
+            deleteFolder(AlfrescoAPI.getFolderByName(session, parentFolder, "cache1"), true);
+            //the cache has been invalidated so the folder is searched in the server
+            assertNull(AlfrescoAPI.getFolderByName(session, parentFolder, "cache1"));
+        }
+    }
+
+    @Test
+    public void getFolderByNameWithTypeMetadataCache(){
+        logger.debug("Init getFolderByNameWithTypeMetadataCache test");
+        createSessionIfNeeded();
+        TypeMetadataCache typeCache = AlfrescoAPI.getTypeMetadataCache(session);
+        FolderCache folderCache = AlfrescoAPI.getFolderCache();
+        //without the folder cache every call runs the query and needs the query name of cmis:objectId
+        AlfrescoAPI.setFolderCache(null);
+        try{
+            assertNotNull(AlfrescoAPI.getFolderByName(session, testProperties.getUsername()));
+            long fetches = typeCache.getFetches();
+            long saved = typeCache.getSavedFetches();
+            for (int i = 0; i < 5; i++){
+                assertNotNull(AlfrescoAPI.getFolderByName(session, testProperties.getUsername()));
+            }
+            assertEquals(fetches, typeCache.getFetches());
+            assertEquals(saved + 5, typeCache.getSavedFetches());
+            logger.info("type definition fetches:"+typeCache.getFetches()+" saved:"+typeCache.getSavedFetches());
+        }finally{
+            AlfrescoAPI.setFolderCache(folderCache);
+        }
+    }
+
     @Test
     public void deleteChildren() throws IOException{
         logger.debug("Init createAndDeleteFolders test");
@@ -142,6 +276,162 @@ public class AlfrescoAPICRUDTest extends AlfrescoAPITest
         }
     }
     
+    @Test
+    public void deleteChildrenInParallel() throws IOException{
+        logger.debug("Init deleteChildrenInParallel test");
+        createSessionIfNeeded();
+        Folder parentFolder =  getFolder(testProperties.getUsername());
+        Folder folder = AlfrescoAPI.createFolder(session, parentFolder, "parallel("+Long.toString(System.currentTimeMillis())+")");
+        byte[] contentFile = getFile();
+        int numDocs = 30;
+        try{
+            AlfrescoAPI.createFolders(session, folder, "sub1/sub2");
+            for (int i = 0; i < numDocs; i++){
+                AlfrescoAPI.createDocument(session, folder, i+getFileName(), contentFile, PDF_MIME_TYPE);
+            }
+            final AtomicLong lastTotal = new AtomicLong();
+            DeleteResult result = AlfrescoAPI.deleteChildren(session, folder, true, 4, 10, new DeleteProgressListener() {
+                @Override
+                public void onProgress(long deleted, long failed, long total, double itemsPerSecond) {
+                    logger.debug("deleted:"+deleted+" failed:"+failed+" total:"+total+" items/s:"+itemsPerSecond);
+                    lastTotal.set(total);
+                }
+            });
+            logger.info(result+" items/s:"+result.getItemsPerSecond());
+            assertTrue(result.isSuccessful());
+            assertEquals(numDocs + 1, result.getDeletedIds().size());
+            assertEquals(numDocs + 1, lastTotal.get());
+            assertEquals(0, folder.getChildren().getTotalNumItems());
+        }finally{
+            deleteFolder(folder, true);
+        }
+    }
+
+    @Test
+    public void metrics() throws Exception{
+        logger.debug("Init metrics test");
+        createSessionIfNeeded();
+        Folder parentFolder =  getFolder(testProperties.getUsername());
+        boolean enabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        Metrics.registerMBean();
+        Document doc = null;
+        try{
+            OperationSnapshot before = Metrics.snapshot("getDocument");
+            long calls = before == null ? 0 : before.getCalls();
+            doc = AlfrescoAPI.createDocument(session, parentFolder, getFileName(), getFile(), PDF_MIME_TYPE);
+            for (int i = 0; i < 10; i++){
+                AlfrescoAPI.getDocument(session, doc.getId());
+            }
+            try{
+                AlfrescoAPI.getDocument(session, doc.getId()+"notExists");
+            }catch(CmisObjectNotFoundException e){
+                //recorded as an error
+            }
+            OperationSnapshot getDocument = Metrics.snapshot("getDocument");
+            logger.info(getDocument);
+            logger.info(Metrics.snapshot("createDocument"));
+            assertEquals(calls + 11, getDocument.getCalls());
+            assertTrue(getDocument.getErrors().containsKey(CmisObjectNotFoundException.class.getName()));
+            assertTrue(getDocument.getRoundTripsPerCall() >= 1);
+            assertTrue(getDocument.getP50Micros() <= getDocument.getP99Micros());
+            assertTrue(getDocument.getP99Micros() <= getDocument.getMaxMicros());
+            //the getDocument made by getDocumentContent is part of the getDocumentContent call
+            AlfrescoAPI.getDocumentContent(session, doc.getId());
+            assertEquals(calls + 11, Metrics.snapshot("getDocument").getCalls());
+            ObjectName name = new ObjectName(Metrics.MBEAN_NAME);
+            assertEquals(Boolean.TRUE, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Enabled"));
+        }finally{
+            if (doc != null){
+                AlfrescoAPI.deleteDocument(session, doc.getId(), true);
+            }
+            Metrics.unregisterMBean();
+            Metrics.setEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void folderSyncWithChangeLog() throws Exception{
+        logger.debug("Init folderSyncWithChangeLog test");
+        createSessionIfNeeded();
+        //Alfresco only has a change log when the audit of the changes is enabled
+        Assume.assumeTrue(ChangeLogPoller.isSupported(session));
+        Folder syncFolder = AlfrescoAPI.createFolder(session, getFolder(testProperties.getUsername()), "sync"+System.currentTimeMillis());
+        Path localDir = Files.createTempDirectory("folderSync");
+        Path manifest = Files.createTempFile("folderSync", ".tsv");
+        Files.delete(manifest);
+        try{
+            Document first = AlfrescoAPI.createDocument(session, syncFolder, "first.pdf", getFile(), PDF_MIME_TYPE);
+            Document second = AlfrescoAPI.createDocument(session, syncFolder, "second.pdf", getFile(), PDF_MIME_TYPE);
+            FolderSync sync = new FolderSync(session, manifest);
+            sync.addFolder(syncFolder.getPath(), localDir);
+            SyncReport report = sync.sync();
+            assertTrue(report.isSuccessful());
+            assertEquals(1, report.getFullScans());
+            assertEquals(2, report.getDownloaded());
+
+            byte[] newContent = "changed by the folder sync test".getBytes(StandardCharsets.UTF_8);
+            AlfrescoAPI.updateDocument(session, getDocument(first.getId()), newContent, PLAINTEXT_MIME_TYPE, new HashMap<String, Object>(), true, "sync");
+            AlfrescoAPI.deleteDocument(session, second.getId(), true);
+            report = sync.sync();
+            logger.info(report);
+            //the changes are applied from the change log without scanning the folder
+            assertTrue(report.isSuccessful());
+            assertEquals(0, report.getFullScans());
+            assertTrue(report.getChanges() > 0);
+            assertEquals(1, report.getDownloaded());
+            assertEquals(1, report.getDeleted());
+            assertArrayEquals(newContent, Files.readAllBytes(localDir.resolve("first.pdf")));
+            assertFalse(Files.exists(localDir.resolve("second.pdf")));
+        }finally{
+            deleteFolder(syncFolder, true);
+            Files.deleteIfExists(manifest);
+        }
+    }
+
+    @Test
+    public void changeLogPoller() throws Exception{
+        logger.debug("Init changeLogPoller test");
+        createSessionIfNeeded();
+        //Alfresco only has a change log when the audit of the changes is enabled
+        Assume.assumeTrue(ChangeLogPoller.isSupported(session));
+        Folder parentFolder =  getFolder(testProperties.getUsername());
+        ObjectCache previousCache = AlfrescoAPI.getObjectCache();
+        ObjectCache cache = new ObjectCache();
+        AlfrescoAPI.setObjectCache(cache);
+        Path tokenFile = Files.createTempFile("changelog", ".token");
+        Files.delete(tokenFile);
+        final Set<String> changedIds = ConcurrentHashMap.newKeySet();
+        try (ChangeLogPoller poller = new ChangeLogPoller(session)){
+            poller.setTokenFile(tokenFile);
+            poller.addListener(events -> {
+                for (ChangeEvent event : events){
+                    changedIds.add(event.getObjectId());
+                }
+            });
+            poller.poll();
+            Document doc = AlfrescoAPI.createDocument(session, parentFolder, getFileName(), getFile(), PDF_MIME_TYPE);
+            AlfrescoAPI.getDocument(session, doc.getId(), true);
+            assertEquals(1, cache.size());
+            //another client changes the document
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(PropertyIds.DESCRIPTION, "changed by another client");
+            session.getObject(doc.getId()).updateProperties(properties, true);
+            for (int i = 0; i < 20 && !changedIds.contains(doc.getId()); i++){
+                poller.poll();
+                Thread.sleep(500);
+            }
+            assertTrue(changedIds.contains(doc.getId()));
+            assertEquals(0, cache.size());
+            assertEquals(poller.getChangeLogToken(), new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8));
+            logger.info("change log events:"+poller.getEvents()+" lag:"+poller.getLagMillis()+"ms");
+            AlfrescoAPI.deleteDocument(session, doc.getId(), true);
+        }finally{
+            AlfrescoAPI.setObjectCache(previousCache);
+            Files.deleteIfExists(tokenFile);
+        }
+    }
+
     @Test(expected = CmisContentAlreadyExistsException.class)
     public void createSameFolder(){
         logger.debug("Init createSameFolder test");
@@ -410,6 +700,137 @@ public class AlfrescoAPICRUDTest extends AlfrescoAPITest
         }
     }
     
+    @Test
+    public void createDocumentFromPath() throws IOException{
+        logger.debug("Init createDocumentFromPath test");
+        createSessionIfNeeded();
+        String folderName = testProperties.getUsername();
+        byte[] contentFile = getFile();
+        Path dir = Files.createTempDirectory("alfrescoAPI");
+        Path file = Files.write(dir.resolve(getFileName()), contentFile);
+        Document doc = null;
+        try{
+            doc = AlfrescoAPI.createDocument(session, getFolder(folderName), file, PDF_MIME_TYPE);
+            checkNewDocument(doc, file.getFileName().toString(), folderName, contentFile.length, PDF_MIME_TYPE);
+            assertTrue(IOUtils.contentEquals(new ByteArrayInputStream(contentFile), doc.getContentStream().getStream()));
+        }finally{
+            deleteDocument(doc);
+            Files.delete(file);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void createLargeDocumentFromStream() throws IOException{
+        logger.debug("Init createLargeDocumentFromStream test");
+        createSessionIfNeeded();
+        String fileName = getFileName()+".bin";
+        long size = getLargeFileSize();
+        Document doc = null;
+        HeapSampler sampler = new HeapSampler();
+        long heapBefore = sampler.getBaseline();
+        long maxHeap;
+        try{
+            doc = AlfrescoAPI.createDocument(session, getFolder(testProperties.getUsername()), fileName,
+                    new GeneratedInputStream(size), size, "application/octet-stream");
+            maxHeap = sampler.stop();
+            logger.info("uploaded "+size+" bytes. heap before:"+heapBefore/1024/1024+"MB max retained heap:"+maxHeap/1024/1024+"MB");
+            assertEquals(size, doc.getContentStreamLength());
+            //the content is never loaded in memory, so the retained heap grows much less than the file size
+            assertTrue(maxHeap - heapBefore < Math.min(size / 4, 64L * 1024 * 1024));
+        }finally{
+            sampler.stop();
+            deleteDocument(doc);
+        }
+    }
+
+    @Test
+    public void getDocumentContentToFile() throws IOException{
+        logger.debug("Init getDocumentContentToFile test");
+        createSessionIfNeeded();
+        String fileName = getFileName();
+        String folderName = testProperties.getUsername();
+        byte[] contentFile = getFile();
+        Path file = Files.createTempFile("alfrescoAPI", fileName);
+        Document doc = null;
+        try{
+            doc = AlfrescoAPI.createDocument(session, getFolder(folderName), fileName, contentFile, PDF_MIME_TYPE);
+            long length = AlfrescoAPI.getDocumentContent(session, doc.getId(), file);
+            assertEquals(contentFile.length, length);
+            assertArrayEquals(contentFile, Files.readAllBytes(file));
+        }finally{
+            deleteDocument(doc);
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void getDocumentContentRange() throws IOException{
+        logger.debug("Init getDocumentContentRange test");
+        createSessionIfNeeded();
+        String fileName = getFileName()+".bin";
+        long size = Math.min(getLargeFileSize(), 64L * 1024 * 1024);
+        Document doc = null;
+        try{
+            doc = AlfrescoAPI.createDocument(session, getFolder(testProperties.getUsername()), fileName,
+                    new GeneratedInputStream(size), size, "application/octet-stream");
+            long start = System.nanoTime();
+            long fullLength = AlfrescoAPI.getDocumentContent(session, doc.getId(), new DiscardChannel());
+            long fullTime = System.nanoTime() - start;
+
+            long offset = size / 2;
+            start = System.nanoTime();
+            ByteBuffer range = AlfrescoAPI.getDocumentContentRange(session, doc.getId(), offset, 4096);
+            long rangeTime = System.nanoTime() - start;
+            logger.info("full download of "+fullLength+" bytes:"+fullTime/1000000+"ms. range of 4096 bytes:"+rangeTime/1000000+"ms");
+
+            assertEquals(size, fullLength);
+            assertEquals(4096, range.remaining());
+            for (int i = 0; i < 4096; i++){
+                assertEquals(GeneratedInputStream.expectedByte(offset + i), range.get());
+            }
+            //a range that goes beyond the end of the document returns the bytes available
+            ByteBuffer tail = ByteBuffer.allocate(100);
+            assertEquals(10, AlfrescoAPI.getDocumentContentRange(session, doc.getId(), size - 10, tail));
+        }finally{
+            deleteDocument(doc);
+        }
+    }
+
+    @Test
+    public void getDocumentContentInSegments() throws IOException{
+        logger.debug("Init getDocumentContentInSegments test");
+        createSessionIfNeeded();
+        String fileName = getFileName()+".bin";
+        //not a multiple of the segment size so that the last range is shorter
+        long size = Math.min(getLargeFileSize(), 256L * 1024 * 1024) + 12345;
+        Path sequentialFile = Files.createTempFile("alfrescoAPI", "sequential");
+        Path segmentedFile = Files.createTempFile("alfrescoAPI", "segmented");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Document doc = null;
+        try{
+            doc = AlfrescoAPI.createDocument(session, getFolder(testProperties.getUsername()), fileName,
+                    new GeneratedInputStream(size), size, "application/octet-stream");
+            long start = System.nanoTime();
+            assertEquals(size, AlfrescoAPI.getDocumentContent(session, doc.getId(), sequentialFile));
+            long sequentialTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            assertEquals(size, AlfrescoAPI.getDocumentContent(session, doc.getId(), segmentedFile, 8, executor));
+            long segmentedTime = System.nanoTime() - start;
+            logger.info("sequential download:"+sequentialTime/1000000+"ms segmented download:"+segmentedTime/1000000+"ms");
+            assertEquals(size, Files.size(segmentedFile));
+            try(InputStream sequential = new BufferedInputStream(Files.newInputStream(sequentialFile));
+                    InputStream segmented = new BufferedInputStream(Files.newInputStream(segmentedFile))){
+                assertTrue(IOUtils.contentEquals(sequential, segmented));
+            }
+        }finally{
+            executor.shutdownNow();
+            deleteDocument(doc);
+            Files.deleteIfExists(sequentialFile);
+            Files.deleteIfExists(segmentedFile);
+        }
+    }
+
     @Test(expected = CmisObjectNotFoundException.class)
     public void getDocumentNotExist() throws IOException{
         logger.debug("Init getDocumentNotExist test");
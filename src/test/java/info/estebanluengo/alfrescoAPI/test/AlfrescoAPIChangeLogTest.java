@@ -0,0 +1,163 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import org.apache.chemistry.opencmis.client.api.ChangeEvent;
+import org.apache.chemistry.opencmis.client.api.ChangeEvents;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ChangeLogPoller;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+import info.estebanluengo.alfrescoAPI.DiskContentCache;
+import info.estebanluengo.alfrescoAPI.FolderCache;
+import info.estebanluengo.alfrescoAPI.ObjectCache;
+import info.estebanluengo.alfrescoAPI.OffHeapContentCache;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This Test class checks that the changes read by ChangeLogPoller invalidate the caches of AlfrescoAPI. The in-memory
+ * repository has no change log, so the changes are given by a Session that wraps the one of the in-memory repository.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPIChangeLogTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final String TEXT_MIME_TYPE = "text/plain";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @After
+    public void disableCaches(){
+        AlfrescoAPI.setObjectCache(null);
+        AlfrescoAPI.setFolderCache(null);
+        AlfrescoAPI.setContentCache(null);
+        AlfrescoAPI.setHotContentCache(null);
+    }
+
+    @Test
+    public void invalidateIdsWithVersionLabel() throws Exception{
+        logger.debug("Init invalidateIdsWithVersionLabel test");
+        Session session = InMemoryRepository.createSession();
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "changeLog");
+        byte[] content = "versioned content".getBytes(StandardCharsets.UTF_8);
+        Document doc = AlfrescoAPI.createDocument(session, folder, "versioned.txt", content, TEXT_MIME_TYPE);
+        //the caches keep the Id with the version label and the change log gives the Id without it
+        String versionedId = doc.getId() + ";1.0";
+        Session changeLogSession = withChangeLog(session, event(doc.getId(), ChangeType.UPDATED));
+
+        ObjectCache objectCache = new ObjectCache(100, 1024 * 1024, 60000, 60000);
+        AlfrescoAPI.setObjectCache(objectCache);
+        objectCache.getObject(changeLogSession, versionedId, ContextProfile.FULL);
+        FolderCache folderCache = new FolderCache();
+        AlfrescoAPI.setFolderCache(folderCache);
+        folderCache.put("versioned", versionedId, "/changeLog/versioned");
+        DiskContentCache diskCache = new DiskContentCache(tempFolder.newFolder("cache").toPath(), 1024 * 1024);
+        AlfrescoAPI.setContentCache(diskCache);
+        diskCache.put(versionedId, "1", new ByteArrayInputStream(content), content.length);
+        OffHeapContentCache hotCache = new OffHeapContentCache(OffHeapContentCache.SLAB_BYTES);
+        AlfrescoAPI.setHotContentCache(hotCache);
+        hotCache.put(versionedId, "1", ByteBuffer.wrap(content)).close();
+        assertEquals(1, objectCache.size());
+        assertNotNull(folderCache.get("versioned"));
+        assertNotNull(diskCache.get(versionedId, "1"));
+
+        Path tokenFile = tempFolder.newFile("token").toPath();
+        Files.write(tokenFile, "1".getBytes(StandardCharsets.UTF_8));
+        try (ChangeLogPoller poller = new ChangeLogPoller(changeLogSession)){
+            poller.setTokenFile(tokenFile);
+            assertEquals(1, poller.poll());
+        }
+        assertEquals(0, objectCache.size());
+        assertNull(folderCache.get("versioned"));
+        assertNull(diskCache.get(versionedId, "1"));
+        assertNull(hotCache.get(versionedId, "1"));
+    }
+
+    private static ChangeEvent event(String objectId, ChangeType changeType){
+        return (ChangeEvent) Proxy.newProxyInstance(ChangeEvent.class.getClassLoader(), new Class<?>[]{ChangeEvent.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()){
+                        case "getObjectId": return objectId;
+                        case "getChangeType": return changeType;
+                        case "getChangeTime": return new GregorianCalendar();
+                        default: return null;
+                    }
+                });
+    }
+
+    /**
+     * Wraps the session so that it returns the change given from its change log and it reads the objects with the
+     * version label in their Id from the in-memory repository
+     */
+    private static Session withChangeLog(Session session, ChangeEvent change){
+        ChangeEvents changes = (ChangeEvents) Proxy.newProxyInstance(ChangeEvents.class.getClassLoader(), new Class<?>[]{ChangeEvents.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()){
+                        case "getChangeEvents": return Collections.singletonList(change);
+                        case "getLatestChangeLogToken": return "2";
+                        case "getHasMoreItems": return Boolean.FALSE;
+                        case "getTotalNumItems": return 1L;
+                        default: return null;
+                    }
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getContentChanges")){
+                        return changes;
+                    }
+                    if (method.getName().equals("getObject") && args.length == 2 && args[0] instanceof String
+                            && args[1] instanceof OperationContext){
+                        String objectId = (String) args[0];
+                        return session.getObject(objectId.substring(0, objectId.indexOf(';')), (OperationContext) args[1]);
+                    }
+                    return invoke(method, session, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable{
+        try{
+            return method.invoke(target, args);
+        }catch(InvocationTargetException e){
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+import info.estebanluengo.alfrescoAPI.DeleteResult;
+import info.estebanluengo.alfrescoAPI.ReadCoalescer;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This Test class calls AlfrescoAPI methods from several threads at the same time. It uses an in-memory
+ * repository so it does not need an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPIConcurrencyTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    private static Session session;
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setUp(){
+        session = InMemoryRepository.createSession();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterClass
+    public static void tearDown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void createSameFoldersConcurrently() throws Exception{
+        logger.debug("Init createSameFoldersConcurrently test");
+        final Folder root = session.getRootFolder();
+        long sharedBefore = AlfrescoAPI.getSharedFolderCreations();
+        for (int round = 0; round < ROUNDS; round++){
+            final String foldersPath = "stress"+round+"/2015/05/11";
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            List<Future<Folder>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++){
+                results.add(executor.submit(new Callable<Folder>() {
+                    @Override
+                    public Folder call() throws Exception {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        return AlfrescoAPI.createFolders(session, root, foldersPath);
+                    }
+                }));
+            }
+            String folderId = null;
+            for (Future<Folder> result: results){
+                //get() throws the CmisContentAlreadyExistsException of a thread that has lost the race
+                Folder folder = result.get(30, TimeUnit.SECONDS);
+                if (folderId == null){
+                    folderId = folder.getId();
+                }
+                assertEquals(folderId, folder.getId());
+                assertEquals("/"+foldersPath, folder.getPath());
+            }
+            Folder first = (Folder) session.getObjectByPath("/stress"+round);
+            assertEquals(1, AlfrescoAPI.getFolders(session, first, false).size());
+        }
+        logger.debug("folder creations shared:"+(AlfrescoAPI.getSharedFolderCreations() - sharedBefore));
+    }
+
+    @Test
+    public void getSameDocumentConcurrently() throws Exception{
+        logger.debug("Init getSameDocumentConcurrently test");
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "coalesce"+System.currentTimeMillis());
+        final String docId = AlfrescoAPI.createDocument(session, folder, "hot.txt", "hot".getBytes(StandardCharsets.UTF_8),
+                "text/plain").getId();
+        boolean enabled = ReadCoalescer.isEnabled();
+        ReadCoalescer.setEnabled(true);
+        long executedBefore = ReadCoalescer.getExecutedReads();
+        long collapsedBefore = ReadCoalescer.getCollapsedReads();
+        try{
+            for (int round = 0; round < ROUNDS; round++){
+                final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+                List<Future<Document>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++){
+                    results.add(executor.submit(() -> {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        return AlfrescoAPI.getDocument(session, docId, ContextProfile.LISTING);
+                    }));
+                }
+                for (Future<Document> result: results){
+                    assertEquals(docId, result.get(30, TimeUnit.SECONDS).getId());
+                }
+            }
+        }finally{
+            ReadCoalescer.setEnabled(enabled);
+        }
+        logger.debug("reads executed:"+(ReadCoalescer.getExecutedReads() - executedBefore)
+                +" collapsed:"+(ReadCoalescer.getCollapsedReads() - collapsedBefore));
+        assertEquals(0, ReadCoalescer.getInFlight());
+    }
+
+    @Test
+    public void interruptDeleteChildren(){
+        logger.debug("Init interruptDeleteChildren test");
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "interrupted"+System.currentTimeMillis());
+        int numDocs = 20;
+        for (int i = 0; i < numDocs; i++){
+            AlfrescoAPI.createDocument(session, folder, "doc"+i+".txt", "delete".getBytes(StandardCharsets.UTF_8), "text/plain");
+        }
+        //the delete stops waiting at once, so most of the children are never deleted
+        Thread.currentThread().interrupt();
+        DeleteResult result = AlfrescoAPI.deleteChildren(session, folder, true, 1, 10, null);
+        assertTrue(Thread.interrupted());
+        logger.debug(result);
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getPendingIds().size() > 0);
+        assertEquals(numDocs, result.getDeletedIds().size() + result.getFailures().size() + result.getPendingIds().size());
+    }
+
+    @Test
+    public void collapseReadsInFlight() throws Exception{
+        logger.debug("Init collapseReadsInFlight test");
+        boolean enabled = ReadCoalescer.isEnabled();
+        ReadCoalescer.setEnabled(true);
+        final String id = "inFlight"+System.currentTimeMillis();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger reads = new AtomicInteger();
+        //the read does not finish until all the callers are waiting for it
+        final Supplier<Object> read = () -> {
+            reads.incrementAndGet();
+            started.countDown();
+            try{
+                release.await(30, TimeUnit.SECONDS);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        };
+        long collapsedBefore = ReadCoalescer.getCollapsedReads();
+        try{
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> ReadCoalescer.read(session, "collapseReadsInFlight", id, null, read)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < THREADS; i++){
+                results.add(executor.submit(() -> ReadCoalescer.read(session, "collapseReadsInFlight", id, null, read)));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (ReadCoalescer.getCollapsedReads() - collapsedBefore < THREADS - 1 && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            release.countDown();
+            Object first = results.get(0).get(30, TimeUnit.SECONDS);
+            for (Future<Object> result: results){
+                assertSame(first, result.get(30, TimeUnit.SECONDS));
+            }
+        }finally{
+            release.countDown();
+            ReadCoalescer.setEnabled(enabled);
+        }
+        long collapsed = ReadCoalescer.getCollapsedReads() - collapsedBefore;
+        assertEquals(1, reads.get());
+        assertTrue(collapsed > 0);
+        assertEquals(THREADS - 1, collapsed);
+        assertEquals(0, ReadCoalescer.getInFlight());
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ContentLease;
+import info.estebanluengo.alfrescoAPI.DiskContentCache;
+import info.estebanluengo.alfrescoAPI.OffHeapContentCache;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This Test class checks the DiskContentCache used by getDocumentContent. It uses an in-memory repository so it does
+ * not need an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPIContentCacheTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final String TEXT_MIME_TYPE = "text/plain";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @After
+    public void disableCache(){
+        AlfrescoAPI.setContentCache(null);
+        AlfrescoAPI.setHotContentCache(null);
+    }
+
+    @Test
+    public void serveContentFromDisk() throws Exception{
+        logger.debug("Init serveContentFromDisk test");
+        Session session = InMemoryRepository.createSession();
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "contentCache");
+        byte[] content = "cached content".getBytes(StandardCharsets.UTF_8);
+        Document doc = AlfrescoAPI.createDocument(session, folder, "cached.txt", content, TEXT_MIME_TYPE);
+        Path directory = tempFolder.newFolder("cache").toPath();
+        DiskContentCache cache = new DiskContentCache(directory, 1024 * 1024);
+        AlfrescoAPI.setContentCache(cache);
+        assertArrayEquals(content, AlfrescoAPI.getDocumentContent(session, doc.getId()));
+        assertArrayEquals(content, AlfrescoAPI.getDocumentContent(session, doc.getId()));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        //a new cache on the same directory keeps the content
+        cache = new DiskContentCache(directory, 1024 * 1024);
+        AlfrescoAPI.setContentCache(cache);
+        assertEquals(1, cache.size());
+        Path file = tempFolder.getRoot().toPath().resolve("cached.txt");
+        assertEquals(content.length, AlfrescoAPI.getDocumentContent(session, doc.getId(), file));
+        assertEquals(1, cache.getHits());
+
+        //a new content has a new change token, so the cached content is not served
+        Thread.sleep(5);
+        byte[] newContent = "new cached content".getBytes(StandardCharsets.UTF_8);
+        ContentStream stream = session.getObjectFactory().createContentStream("cached.txt", newContent.length, TEXT_MIME_TYPE,
+                new ByteArrayInputStream(newContent));
+        ((Document) session.getObject(doc.getId())).setContentStream(stream, true);
+        assertEquals(newContent.length, AlfrescoAPI.getDocumentContent(session, doc.getId(), file));
+        assertArrayEquals(newContent, Files.readAllBytes(file));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.size());
+        assertTrue(cache.getBytes() >= content.length + newContent.length);
+        logger.debug(cache);
+    }
+
+    @Test
+    public void rejectContentWithOtherLength() throws Exception{
+        logger.debug("Init rejectContentWithOtherLength test");
+        DiskContentCache cache = new DiskContentCache(tempFolder.newFolder("cache").toPath(), 1024 * 1024);
+        byte[] content = "truncated content".getBytes(StandardCharsets.UTF_8);
+        try{
+            cache.put("truncated", "1", new ByteArrayInputStream(content, 0, 9), content.length);
+            fail("A truncated content has been cached");
+        }catch(IOException e){
+            logger.debug(e.getMessage());
+        }
+        assertNull(cache.get("truncated", "1"));
+        assertEquals(0, cache.size());
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(cache.getDirectory())){
+            assertFalse(files.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void serveContentFromOffHeapMemory() throws Exception{
+        logger.debug("Init serveContentFromOffHeapMemory test");
+        Session session = InMemoryRepository.createSession();
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "hotContentCache");
+        byte[] content = "hot content".getBytes(StandardCharsets.UTF_8);
+        Document doc = AlfrescoAPI.createDocument(session, folder, "hot.txt", content, TEXT_MIME_TYPE);
+        OffHeapContentCache cache = new OffHeapContentCache(OffHeapContentCache.SLAB_BYTES);
+        AlfrescoAPI.setHotContentCache(cache);
+        try(ContentLease lease = AlfrescoAPI.getDocumentContentLease(session, doc.getId())){
+            assertTrue(lease.isOffHeap());
+            assertTrue(lease.getBuffer().isReadOnly());
+            assertEquals(content.length, lease.getLength());
+        }
+        try(ContentLease lease = AlfrescoAPI.getDocumentContentLease(session, doc.getId())){
+            ByteBuffer buffer = lease.getBuffer();
+            byte[] read = new byte[buffer.remaining()];
+            buffer.get(read);
+            assertArrayEquals(content, read);
+        }
+        assertArrayEquals(content, AlfrescoAPI.getDocumentContent(session, doc.getId()));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void concurrentMissesShareTheLoad() throws Exception{
+        logger.debug("Init concurrentMissesShareTheLoad test");
+        Session session = InMemoryRepository.createSession();
+        Folder folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "sharedHotContent");
+        byte[] content = "shared hot content".getBytes(StandardCharsets.UTF_8);
+        Document doc = AlfrescoAPI.createDocument(session, folder, "shared.txt", content, TEXT_MIME_TYPE);
+        OffHeapContentCache cache = new OffHeapContentCache(OffHeapContentCache.SLAB_BYTES);
+        AlfrescoAPI.setHotContentCache(cache);
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Callable<ContentLease>> calls = new ArrayList<>();
+        for (int i = 0; i < threads; i++){
+            calls.add(() -> {
+                start.await();
+                return AlfrescoAPI.getDocumentContentLease(session, doc.getId());
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            List<ContentLease> leases = new ArrayList<>();
+            for (Future<ContentLease> future : executor.invokeAll(calls)){
+                leases.add(future.get());
+            }
+            //every thread has its own lease of the same entry
+            for (ContentLease lease : leases){
+                ByteBuffer buffer = lease.getBuffer();
+                byte[] read = new byte[buffer.remaining()];
+                buffer.get(read);
+                assertArrayEquals(content, read);
+                lease.close();
+            }
+            assertEquals(1, cache.size());
+            assertEquals(threads, cache.getHits() + cache.getMisses());
+        }finally{
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void evictedContentIsValidWhileLeased(){
+        logger.debug("Init evictedContentIsValidWhileLeased test");
+        //a slab keeps 4 contents of 256KB
+        OffHeapContentCache cache = new OffHeapContentCache(OffHeapContentCache.SLAB_BYTES);
+        byte[] content = new byte[OffHeapContentCache.MAX_ENTRY_BYTES];
+        content[0] = 1;
+        ContentLease first = cache.put("first", "1", ByteBuffer.wrap(content));
+        content[0] = 2;
+        for (int i = 0; i < 4; i++){
+            cache.put("doc"+i, "1", ByteBuffer.wrap(content)).close();
+        }
+        //the first content has been evicted but its chunk is not reused while it is leased
+        assertNull(cache.get("first", "1"));
+        assertEquals(1, first.getBuffer().get(0));
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getEvictions());
+        first.close();
+        assertNull(cache.put("large", "1", ByteBuffer.allocate(OffHeapContentCache.MAX_ENTRY_BYTES + 1)));
+        logger.debug(cache);
+    }
+}
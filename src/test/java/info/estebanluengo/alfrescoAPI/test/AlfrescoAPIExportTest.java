@@ -0,0 +1,155 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ExportReport;
+import info.estebanluengo.alfrescoAPI.TreeExporter;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This Test class exports a folder tree with TreeExporter and reads the archives back. It uses an in-memory
+ * repository so it does not need an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPIExportTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final String TEXT_MIME_TYPE = "text/plain";
+    private static final int DOCS_PER_FOLDER = 10;
+
+    private static Session session;
+    private static Folder root;
+    //expected content of every document by its entry name
+    private static final Map<String, String> contents = new HashMap<>();
+
+    @BeforeClass
+    public static void setUp(){
+        session = InMemoryRepository.createSession();
+        root = AlfrescoAPI.createFolder(session, session.getRootFolder(), "export"+System.currentTimeMillis());
+        String[] paths = {"", "a", "a/b", "c"};
+        for (String path: paths){
+            Folder folder = path.isEmpty() ? root : AlfrescoAPI.createFolders(session, root, path);
+            for (int i = 0; i < DOCS_PER_FOLDER; i++){
+                String content = "content of "+path+"/"+i;
+                AlfrescoAPI.createDocument(session, folder, "doc"+i+".txt", content.getBytes(StandardCharsets.UTF_8), TEXT_MIME_TYPE);
+                contents.put(root.getName()+(path.isEmpty() ? "" : "/"+path)+"/doc"+i+".txt", content);
+            }
+        }
+    }
+
+    @Test
+    public void exportToZip() throws IOException{
+        logger.debug("Init exportToZip test");
+        Path file = Files.createTempFile("export", ".zip");
+        try{
+            TreeExporter exporter = new TreeExporter(session);
+            exporter.setDownloadWorkers(4);
+            ExportReport report = exporter.export(root, file, TreeExporter.Format.ZIP);
+            logger.info(report);
+            checkReport(report);
+            List<String> names = new ArrayList<>();
+            try(ZipInputStream zip = new ZipInputStream(Files.newInputStream(file))){
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null){
+                    names.add(entry.getName());
+                    checkEntry(entry.getName(), zip);
+                }
+            }
+            checkNames(names);
+        }finally{
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void exportToTar() throws IOException{
+        logger.debug("Init exportToTar test");
+        Path file = Files.createTempFile("export", ".tar");
+        try{
+            TreeExporter exporter = new TreeExporter(session);
+            exporter.setDownloadWorkers(2);
+            exporter.setMaxPendingDownloads(1);
+            ExportReport report = exporter.export(root, file, TreeExporter.Format.TAR);
+            logger.info(report);
+            checkReport(report);
+            List<String> names = new ArrayList<>();
+            try(TarArchiveInputStream tar = new TarArchiveInputStream(Files.newInputStream(file))){
+                TarArchiveEntry entry;
+                while ((entry = tar.getNextTarEntry()) != null){
+                    names.add(entry.getName());
+                    checkEntry(entry.getName(), tar);
+                }
+            }
+            checkNames(names);
+        }finally{
+            Files.delete(file);
+        }
+    }
+
+    private void checkReport(ExportReport report){
+        assertTrue(report.isSuccessful());
+        assertEquals(4, report.getFolders());
+        assertEquals(contents.size(), report.getDocuments());
+        assertTrue(report.getArchiveBytes() > report.getContentBytes());
+    }
+
+    private void checkEntry(String name, InputStream in) throws IOException{
+        if (name.endsWith(TreeExporter.METADATA_SUFFIX)){
+            String json = IOUtils.toString(in, StandardCharsets.UTF_8.name());
+            assertTrue(json.contains("\"cmis:name\": \""));
+        }else if (!name.endsWith("/")){
+            assertEquals(contents.get(name), IOUtils.toString(in, StandardCharsets.UTF_8.name()));
+        }
+    }
+
+    /**
+     * Checks that every document is in the archive after its folder and followed by its metadata
+     */
+    private void checkNames(List<String> names){
+        for (String docName: contents.keySet()){
+            int index = names.indexOf(docName);
+            assertTrue(docName, index > 0);
+            assertTrue(names.indexOf(docName.substring(0, docName.lastIndexOf('/') + 1)) < index);
+            assertEquals(docName+TreeExporter.METADATA_SUFFIX, names.get(index + 1));
+        }
+        assertEquals(4 + contents.size() * 2, names.size());
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.DeleteResult;
+import info.estebanluengo.alfrescoAPI.ObjectCache;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This Test class checks the ObjectCache used by AlfrescoAPI. It uses an in-memory repository so it does not need
+ * an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPIObjectCacheTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final String TEXT_MIME_TYPE = "text/plain";
+
+    private static Session session;
+    private static Folder folder;
+
+    @BeforeClass
+    public static void setUp(){
+        session = InMemoryRepository.createSession();
+        folder = AlfrescoAPI.createFolder(session, session.getRootFolder(), "objectCache");
+    }
+
+    @After
+    public void disableCache(){
+        AlfrescoAPI.setObjectCache(null);
+    }
+
+    @Test
+    public void revalidateWithChangeToken() throws Exception{
+        logger.debug("Init revalidateWithChangeToken test");
+        ObjectCache cache = new ObjectCache(100, 1024 * 1024, 60000, 0);
+        AlfrescoAPI.setObjectCache(cache);
+        Document doc = AlfrescoAPI.createDocument(session, folder, "revalidate.txt", "v1".getBytes(StandardCharsets.UTF_8), TEXT_MIME_TYPE);
+        Document first = AlfrescoAPI.getDocument(session, doc.getId(), true);
+        Document second = AlfrescoAPI.getDocument(session, doc.getId(), true);
+        assertSame(first, second);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getRevalidatedHits());
+        //another client changes the document, so the change token of the server is not the cached one
+        Thread.sleep(5);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(PropertyIds.NAME, "renamed.txt");
+        session.getObject(doc.getId()).updateProperties(properties, true);
+        Document third = AlfrescoAPI.getDocument(session, doc.getId(), true);
+        assertEquals("renamed.txt", third.getName());
+        assertEquals(1, cache.getStaleEntries());
+        assertTrue(cache.getBytes() > 0);
+        logger.debug(cache);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed(){
+        logger.debug("Init evictLeastRecentlyUsed test");
+        ObjectCache cache = new ObjectCache(2, 1024 * 1024, 60000, 60000);
+        AlfrescoAPI.setObjectCache(cache);
+        String[] ids = new String[3];
+        for (int i = 0; i < ids.length; i++){
+            ids[i] = AlfrescoAPI.createDocument(session, folder, "lru"+i+".txt", "lru".getBytes(StandardCharsets.UTF_8), TEXT_MIME_TYPE).getId();
+            AlfrescoAPI.getDocument(session, ids[i], true);
+        }
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        AlfrescoAPI.getDocument(session, ids[2], true);
+        assertEquals(1, cache.getHits());
+        //without the cache flag the object cache is not used
+        AlfrescoAPI.getDocument(session, ids[0], false);
+        assertEquals(3, cache.getMisses());
+        AlfrescoAPI.deleteDocument(session, ids[2], true);
+        assertEquals(1, cache.size());
+        //the parallel delete of the children of a folder invalidates the documents too
+        Folder children = AlfrescoAPI.createFolder(session, folder, "lruChildren");
+        String childId = AlfrescoAPI.createDocument(session, children, "child.txt", "lru".getBytes(StandardCharsets.UTF_8), TEXT_MIME_TYPE).getId();
+        AlfrescoAPI.getDocument(session, childId, true);
+        assertEquals(2, cache.size());
+        DeleteResult result = AlfrescoAPI.deleteChildren(session, children, true, 2, 10, null);
+        assertTrue(result.isSuccessful());
+        assertEquals(1, cache.size());
+    }
+}
@@ -16,20 +16,32 @@
 package info.estebanluengo.alfrescoAPI.test;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.chemistry.opencmis.client.api.CmisObject;
 import org.apache.chemistry.opencmis.client.api.Document;
 import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.AclCapabilities;
 import org.apache.chemistry.opencmis.commons.data.PermissionMapping;
 import org.apache.chemistry.opencmis.commons.definitions.PermissionDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+import info.estebanluengo.alfrescoAPI.Metrics;
+import info.estebanluengo.alfrescoAPI.OperationSnapshot;
+import info.estebanluengo.alfrescoAPI.QueryItem;
+import info.estebanluengo.alfrescoAPI.QueryIterator;
+import info.estebanluengo.alfrescoAPI.TransportConfig;
 import static info.estebanluengo.alfrescoAPI.test.AlfrescoAPICRUDTest.DOC_TYPE;
 import static info.estebanluengo.alfrescoAPI.test.AlfrescoAPICRUDTest.PDF_MIME_TYPE;
 import info.estebanluengo.alfrescoAPI.test.conf.AppConfig;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import org.junit.Ignore;
@@ -143,6 +155,117 @@ public class AlfrescoAPIQueryTest extends AlfrescoAPITest{
         }
     }    
     
+    @Test
+    public void executeQueryWithBrowserBinding() throws IOException{
+        logger.debug("Init executeQueryWithBrowserBinding test");
+        createSessionIfNeeded();
+        //the Browser binding of Alfresco is published next to the AtomPub one
+        String browserUrl = testProperties.getServer().replaceAll("/atom/?$", "/browser");
+        Session browserSession = AlfrescoAPI.createSession(testProperties.getUsername(), testProperties.getPassword(),
+                browserUrl, TransportConfig.DEFAULT.withBinding(BindingType.BROWSER));
+        Folder parentFolder = getFolder(testProperties.getUsername());
+        Folder folder = AlfrescoAPI.createFolder(browserSession, parentFolder, "browser"+System.currentTimeMillis());
+        try{
+            Document doc1 = AlfrescoAPI.createDocument(browserSession, folder, getFileName(), getFile(), PDF_MIME_TYPE);
+            Document doc2 = AlfrescoAPI.createDocument(browserSession, folder, "_"+getFileName(), getFile(), PDF_MIME_TYPE);
+            String[] queries = {
+                "select * from cmis:document where in_folder('"+folder.getId()+"')",
+                "select d.cmis:objectId, d.cmis:name from cmis:document d where in_folder(d, '"+folder.getId()+"')"
+            };
+            for (String query : queries){
+                List<QueryItem> items = AlfrescoAPI.executeQueryItems(browserSession, query, 100, false);
+                Set<String> ids = new HashSet<>();
+                for (QueryItem item : items){
+                    ids.add(item.getId());
+                }
+                assertEquals(query, 2, ids.size());
+                assertTrue(query, ids.contains(doc1.getId()) && ids.contains(doc2.getId()));
+                List<CmisObject> objects = AlfrescoAPI.executeQuery(browserSession, query, 100, ContextProfile.LISTING);
+                assertTrue(containsDocument(objects, doc1.getId()));
+                assertTrue(containsDocument(objects, doc2.getId()));
+            }
+        }finally{
+            AlfrescoAPI.deleteFolder(session, folder, true);
+        }
+    }
+
+    @Test
+    public void executeQueryItemsRoundTrips() throws IOException{
+        logger.debug("Init executeQueryItemsRoundTrips test");
+        createSessionIfNeeded();
+        int numDocs = 20;
+        byte[] contentFile = getFile();
+        Folder parentFolder = getFolder(testProperties.getUsername());
+        Folder folder = AlfrescoAPI.createFolder(session, parentFolder, "roundTrips("+Long.toString(System.currentTimeMillis())+")");
+        boolean enabled = Metrics.isEnabled();
+        Metrics.setEnabled(true);
+        try{
+            for (int i = 0; i < numDocs; i++){
+                AlfrescoAPI.createDocument(session, folder, i+getFileName(), contentFile, PDF_MIME_TYPE);
+            }
+            String query = "select * from cmis:document where IN_FOLDER('workspace://SpacesStore/"+folder.getId()+"')";
+            //the first calls load the type definitions, so they are not measured
+            AlfrescoAPI.executeQuery(session, query, 100, false);
+            AlfrescoAPI.executeQueryItems(session, query, 100, false);
+
+            long before = getRoundTrips("executeQuery");
+            List<CmisObject> objList = AlfrescoAPI.executeQuery(session, query, 100, false);
+            long executeQueryRoundTrips = getRoundTrips("executeQuery") - before;
+            before = getRoundTrips("executeQueryItems");
+            List<QueryItem> itemList = AlfrescoAPI.executeQueryItems(session, query, 100, false);
+            long executeQueryItemsRoundTrips = getRoundTrips("executeQueryItems") - before;
+
+            logger.info("executeQuery: rows="+objList.size()+" roundTrips="+executeQueryRoundTrips);
+            logger.info("executeQueryItems: rows="+itemList.size()+" roundTrips="+executeQueryItemsRoundTrips);
+            assertEquals(numDocs, objList.size());
+            assertEquals(numDocs, itemList.size());
+            //executeQuery gets every row from the server, executeQueryItems only runs the query
+            assertTrue(executeQueryRoundTrips >= numDocs + 1);
+            assertEquals(1, executeQueryItemsRoundTrips);
+            for (QueryItem item: itemList){
+                assertTrue(containsDocument(objList, item.getId()));
+                assertNotNull(item.getPropertyValue(PropertyIds.NAME));
+            }
+        }finally{
+            Metrics.setEnabled(enabled);
+            deleteFolder(folder, true);
+        }
+    }
+
+    private long getRoundTrips(String operation){
+        OperationSnapshot snapshot = Metrics.snapshot(operation);
+        return snapshot == null ? 0 : snapshot.getRoundTrips();
+    }
+
+    @Test
+    public void executeQueryIterator() throws IOException{
+        logger.debug("Init executeQueryIterator test");
+        createSessionIfNeeded();
+        int numDocs = 7;
+        byte[] contentFile = getFile();
+        Folder parentFolder = getFolder(testProperties.getUsername());
+        Folder folder = AlfrescoAPI.createFolder(session, parentFolder, "iterator("+Long.toString(System.currentTimeMillis())+")");
+        try{
+            for (int i = 0; i < numDocs; i++){
+                AlfrescoAPI.createDocument(session, folder, i+getFileName(), contentFile, PDF_MIME_TYPE);
+            }
+            String query = "select * from cmis:document where IN_FOLDER('workspace://SpacesStore/"+folder.getId()+"')";
+            //page size smaller than the result so that several pages are fetched
+            for (int prefetchPages = 0; prefetchPages <= 2; prefetchPages++){
+                Set<String> ids = new HashSet<>();
+                try(QueryIterator it = AlfrescoAPI.executeQueryIterator(session, query, 3, prefetchPages, false)){
+                    while (it.hasNext()){
+                        ids.add(it.next().getId());
+                    }
+                    assertEquals(numDocs, it.getItemsRead());
+                }
+                assertEquals(numDocs, ids.size());
+            }
+        }finally{
+            deleteFolder(folder, true);
+        }
+    }
+
 //    @Test 
     public void dumpRepositoryPermissions(){
         logger.debug("Init dumpRepositoryPermissions test");
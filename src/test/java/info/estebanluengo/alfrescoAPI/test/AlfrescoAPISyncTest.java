@@ -0,0 +1,106 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.ChangeLogPoller;
+import info.estebanluengo.alfrescoAPI.FolderSync;
+import info.estebanluengo.alfrescoAPI.SyncReport;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This Test class checks FolderSync. It uses an in-memory repository so it does not need an Alfresco server. The
+ * in-memory repository may not have a change log, so the changes are applied by scanning the tree again; the changes
+ * applied from the change log are checked by AlfrescoAPICRUDTest.folderSyncWithChangeLog.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPISyncTest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final String TEXT_MIME_TYPE = "text/plain";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void syncOnlyChangedDocuments() throws Exception{
+        logger.debug("Init syncOnlyChangedDocuments test");
+        Session session = InMemoryRepository.createSession();
+        Folder root = AlfrescoAPI.createFolder(session, session.getRootFolder(), "sync");
+        Folder child = AlfrescoAPI.createFolder(session, root, "child");
+        Document first = AlfrescoAPI.createDocument(session, root, "first.txt", "first".getBytes(StandardCharsets.UTF_8), TEXT_MIME_TYPE);
+        Document second = AlfrescoAPI.createDocument(session, child, "second.txt", "second".getBytes(StandardCharsets.UTF_8), TEXT_MIME_TYPE);
+        Path localDir = tempFolder.newFolder("mirror").toPath();
+        Path manifest = tempFolder.getRoot().toPath().resolve("manifest.tsv");
+
+        FolderSync sync = new FolderSync(session, manifest);
+        sync.addFolder("/sync", localDir);
+        SyncReport report = sync.sync();
+        logger.debug(report);
+        assertTrue(report.isSuccessful());
+        assertEquals(1, report.getFullScans());
+        assertEquals(2, report.getDownloaded());
+        assertEquals("second", new String(Files.readAllBytes(localDir.resolve("child/second.txt")), StandardCharsets.UTF_8));
+
+        //a new FolderSync continues from the manifest and does not download anything again
+        sync = new FolderSync(session, manifest);
+        sync.addFolder("/sync", localDir);
+        report = sync.sync();
+        logger.debug(report);
+        //with a change log the folder is not scanned again, without it the tree is scanned comparing the change tokens
+        boolean changeLog = ChangeLogPoller.isSupported(session);
+        assertEquals(changeLog ? 0 : 1, report.getFullScans());
+        assertEquals(0, report.getDownloaded());
+        assertEquals(11, report.getAvoidedBytes());
+
+        Thread.sleep(5);
+        byte[] content = "first changed".getBytes(StandardCharsets.UTF_8);
+        ContentStream stream = session.getObjectFactory().createContentStream("first.txt", content.length, TEXT_MIME_TYPE,
+                new ByteArrayInputStream(content));
+        ((Document) session.getObject(first.getId())).setContentStream(stream, true);
+        AlfrescoAPI.deleteDocument(session, second.getId(), true);
+        report = sync.sync();
+        logger.debug(report);
+        assertTrue(report.isSuccessful());
+        assertEquals(changeLog ? 0 : 1, report.getFullScans());
+        if (changeLog){
+            assertTrue(report.getChanges() > 0);
+        }
+        assertEquals(1, report.getDownloaded());
+        assertEquals(1, report.getDeleted());
+        assertEquals("first changed", new String(Files.readAllBytes(localDir.resolve("first.txt")), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(localDir.resolve("child/second.txt")));
+        assertFalse(Files.exists(localDir.resolve("first.txt" + FolderSync.PART_SUFFIX)));
+    }
+}
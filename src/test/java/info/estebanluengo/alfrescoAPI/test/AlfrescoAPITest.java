@@ -17,6 +17,8 @@ package info.estebanluengo.alfrescoAPI.test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -130,6 +132,18 @@ public abstract class AlfrescoAPITest {
         return org.apache.commons.io.IOUtils.toByteArray(input);
     }
     
+    /**
+     * Returns the size in bytes of the large file used by the streaming tests. By default it is 64MB more than the
+     * max heap of the test JVM (-Xmx), so a method that loads the whole content in memory fails with an
+     * OutOfMemoryError. It can be changed with the alfrescoAPI.largeFileSize system property.
+     *
+     * @return a long with the size of the large file
+     */
+    protected long getLargeFileSize(){
+        long aboveMaxHeap = Runtime.getRuntime().maxMemory() + 64L * 1024 * 1024;
+        return Long.getLong("alfrescoAPI.largeFileSize", Math.max(aboveMaxHeap, 256L * 1024 * 1024));
+    }
+
     /**
      * Gets a document from Alfresco server by Id
      * 
@@ -302,6 +316,128 @@ public abstract class AlfrescoAPITest {
         }
     }
     
+    /**
+     * An InputStream that generates size bytes without keeping them in memory. The byte at position p is always
+     * the same, so the content can be checked after a download with {@link #expectedByte(long)}
+     */
+    protected static class GeneratedInputStream extends InputStream {
+        private final long size;
+        private long position;
+
+        public GeneratedInputStream(long size){
+            this.size = size;
+        }
+
+        public static byte expectedByte(long position){
+            return (byte) (position * 31 + (position >>> 12));
+        }
+
+        @Override
+        public int read(){
+            if (position >= size){
+                return -1;
+            }
+            return expectedByte(position++) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len){
+            if (position >= size){
+                return -1;
+            }
+            int n = (int) Math.min(len, size - position);
+            for (int i = 0; i < n; i++){
+                b[off + i] = expectedByte(position++);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * A WritableByteChannel that counts and discards the bytes written
+     */
+    protected static class DiscardChannel implements WritableByteChannel {
+        private long written;
+
+        @Override
+        public int write(ByteBuffer src){
+            int n = src.remaining();
+            src.position(src.limit());
+            written += n;
+            return n;
+        }
+
+        public long getWritten(){
+            return written;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+
+    /**
+     * Samples the retained heap in a background thread and keeps the max value. Every sample runs the garbage
+     * collector first, so the garbage of a stream does not count, only the memory that is still referenced
+     */
+    protected static class HeapSampler implements Runnable {
+        private final Thread thread = new Thread(this, "heap-sampler");
+        private volatile boolean running = true;
+        private final long baseline;
+        private volatile long maxUsed;
+
+        public HeapSampler(){
+            System.gc();
+            baseline = usedHeap();
+            maxUsed = baseline;
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private static long usedHeap(){
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+
+        @Override
+        public void run(){
+            while (running){
+                System.gc();
+                maxUsed = Math.max(maxUsed, usedHeap());
+                try{
+                    Thread.sleep(250);
+                }catch(InterruptedException e){
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Gets the used heap when the sampler was created
+         *
+         * @return a long with the used heap in bytes
+         */
+        public long getBaseline(){
+            return baseline;
+        }
+
+        /**
+         * Stops the sampler
+         *
+         * @return a long with the max heap retained while the sampler was running
+         */
+        public long stop(){
+            running = false;
+            thread.interrupt();
+            return maxUsed;
+        }
+    }
+
     /**
      * Logs all document properties
      * @param doc a Document object
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.lang.ref.WeakReference;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAPI;
+import info.estebanluengo.alfrescoAPI.TypeMetadataCache;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * This Test class checks the TypeMetadataCache of the sessions. It uses an in-memory repository so it does not need
+ * an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAPITypeMetadataCacheTest {
+
+    private static final Logger logger = LogManager.getLogger();
+
+    @Test
+    public void cacheIsDiscardedWithTheSession() throws Exception{
+        logger.debug("Init cacheIsDiscardedWithTheSession test");
+        Session session = InMemoryRepository.createSession();
+        TypeMetadataCache typeCache = AlfrescoAPI.getTypeMetadataCache(session);
+        typeCache.warmUp();
+        assertNotNull(typeCache.getQueryName(BaseTypeId.CMIS_FOLDER.value(), PropertyIds.OBJECT_ID));
+        assertEquals(2, typeCache.getFetches());
+        WeakReference<Session> sessionRef = new WeakReference<>(session);
+        WeakReference<TypeMetadataCache> cacheRef = new WeakReference<>(typeCache);
+        session = null;
+        typeCache = null;
+        Session other = InMemoryRepository.createSession();
+        for (int i = 0; i < 50 && (sessionRef.get() != null || cacheRef.get() != null); i++){
+            System.gc();
+            Thread.sleep(20);
+            //the weak map removes the caches of the collected sessions when it is used
+            AlfrescoAPI.getTypeMetadataCache(other);
+        }
+        assertNull(sessionRef.get());
+        assertNull(cacheRef.get());
+    }
+}
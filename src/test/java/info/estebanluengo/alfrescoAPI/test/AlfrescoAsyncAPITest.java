@@ -0,0 +1,109 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import info.estebanluengo.alfrescoAPI.AlfrescoAsyncAPI;
+import info.estebanluengo.alfrescoAPI.ContextProfile;
+import info.estebanluengo.alfrescoAPI.test.conf.InMemoryRepository;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * This Test class makes calls with AlfrescoAsyncAPI keeping many of them outstanding at the same time. It uses an
+ * in-memory repository so it does not need an Alfresco server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class AlfrescoAsyncAPITest {
+
+    private static final Logger logger = LogManager.getLogger();
+    private static final int MAX_IN_FLIGHT = 32;
+    private static final int NUM_DOCS = 2000;
+    private static final String TEXT_MIME_TYPE = "text/plain";
+
+    private static Session session;
+    private static AlfrescoAsyncAPI asyncAPI;
+
+    @BeforeClass
+    public static void setUp(){
+        session = InMemoryRepository.createSession();
+        asyncAPI = new AlfrescoAsyncAPI(session, null, MAX_IN_FLIGHT);
+    }
+
+    @AfterClass
+    public static void tearDown(){
+        asyncAPI.close();
+    }
+
+    @Test
+    public void createAndGetDocumentsAsync() throws Exception{
+        logger.debug("Init createAndGetDocumentsAsync test");
+        Folder folder = asyncAPI.createFolder(session.getRootFolder(), "async"+System.currentTimeMillis()).get(10, TimeUnit.SECONDS);
+        byte[] content = "async content".getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        List<CompletableFuture<Document>> creations = new ArrayList<>(NUM_DOCS);
+        for (int i = 0; i < NUM_DOCS; i++){
+            creations.add(asyncAPI.createDocument(folder, "doc"+i+".txt", content, TEXT_MIME_TYPE));
+        }
+        CompletableFuture.allOf(creations.toArray(new CompletableFuture<?>[0])).get(60, TimeUnit.SECONDS);
+        logger.info(NUM_DOCS+" documents created in "+(System.nanoTime() - start)/1000000+"ms peakInFlight:"+asyncAPI.getPeakInFlight());
+        assertTrue(asyncAPI.getPeakInFlight() <= MAX_IN_FLIGHT);
+
+        List<CompletableFuture<byte[]>> contents = new ArrayList<>(NUM_DOCS);
+        for (CompletableFuture<Document> creation: creations){
+            contents.add(asyncAPI.getDocument(creation.join().getId(), ContextProfile.ID_ONLY)
+                    .thenCompose(doc -> asyncAPI.getDocumentContent(doc.getId())));
+        }
+        for (CompletableFuture<byte[]> docContent: contents){
+            assertArrayEquals(content, docContent.get(60, TimeUnit.SECONDS));
+        }
+        List<Folder> folders = asyncAPI.getFolders(session.getRootFolder(), ContextProfile.LISTING).get(10, TimeUnit.SECONDS);
+        assertTrue(folders.size() >= 1);
+        assertEquals(NUM_DOCS, folder.getChildren().getTotalNumItems());
+        asyncAPI.deleteFolder(folder, true).get(60, TimeUnit.SECONDS);
+        assertTrue(asyncAPI.getPeakInFlight() <= MAX_IN_FLIGHT);
+        assertEquals(0, asyncAPI.getInFlight());
+    }
+
+    @Test
+    public void getDocumentAsyncNotFound() throws Exception{
+        logger.debug("Init getDocumentAsyncNotFound test");
+        try{
+            asyncAPI.getDocument("notExists", false).get(10, TimeUnit.SECONDS);
+            fail("the future must be completed with CmisObjectNotFoundException");
+        }catch(ExecutionException e){
+            assertTrue(e.getCause() instanceof CmisObjectNotFoundException);
+        }
+    }
+}
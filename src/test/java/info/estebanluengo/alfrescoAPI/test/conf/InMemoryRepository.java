@@ -0,0 +1,53 @@
+/**
+ * Copyright 2015 Esteban Luengo Simón
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package info.estebanluengo.alfrescoAPI.test.conf;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.SessionFactoryImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+
+/**
+ * Creates sessions connected to an OpenCMIS in-memory repository that runs inside the test JVM through the
+ * local binding. It allows to run the tests that do not need Alfresco specific features without a server.
+ *
+ * @author Esteban Luengo Simón
+ * @version 1.0 11/May/2015
+ */
+public class InMemoryRepository {
+
+    public static final String REPOSITORY_ID = "A1";
+
+    /**
+     * Creates a new Session connected to a new in-memory repository. Every Session has its own repository, so
+     * share the Session between the threads of a test to work on the same repository.
+     *
+     * @return a Session object connected to the in-memory repository
+     */
+    public static Session createSession(){
+        Map<String, String> parameter = new HashMap<>();
+        parameter.put(SessionParameter.USER, "test");
+        parameter.put(SessionParameter.PASSWORD, "test");
+        parameter.put(SessionParameter.BINDING_TYPE, BindingType.LOCAL.value());
+        parameter.put(SessionParameter.LOCAL_FACTORY, "org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceFactoryImpl");
+        parameter.put(SessionParameter.REPOSITORY_ID, REPOSITORY_ID);
+        //in-memory server configuration, see org.apache.chemistry.opencmis.inmemory.ConfigConstants
+        parameter.put("InMemoryServer.RepositoryId", REPOSITORY_ID);
+        return SessionFactoryImpl.newInstance().createSession(parameter);
+    }
+}